@@ -0,0 +1,61 @@
+package sh.stein.carbon;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@code LanguageDetector.detect} on snippets of increasing size, for
+ * which token statistics are the slowest path.
+ *
+ * <p>Run with {@code ./gradlew jmh}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LanguageDetectorBenchmark {
+
+    private static final String SNIPPET = "public class A implements B {\n"
+            + "    @Override\n"
+            + "    public void run() throws Exception {\n"
+            + "        System.out.println(\"Hello, world!\");\n"
+            + "    }\n"
+            + "}\n";
+
+    @Param({"6", "60", "600"})
+    private int lines;
+
+    private final LanguageDetector detector = new LanguageDetector();
+    private String code;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < SNIPPET.length() * lines / 6) {
+            builder.append(SNIPPET);
+        }
+        code = builder.toString();
+    }
+
+    @Benchmark
+    public LanguageDetector.Detection detectStatistically() {
+        return detector.detect(code);
+    }
+
+    @Benchmark
+    public LanguageDetector.Detection detectFileName() {
+        return detector.detect("A.java", code);
+    }
+}
@@ -0,0 +1,142 @@
+package sh.stein.carbon;
+
+import static sh.stein.carbon.PlaywrightCarbonService.LaunchProfile;
+
+import com.microsoft.playwright.Playwright;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures each {@code PlaywrightCarbonService.LaunchProfile}'s launch time and render time. While
+ * rendering, it samples the resident memory of the Chromium processes, as read from {@code /proc}
+ * on Linux, and prints the peak after each iteration.
+ *
+ * <p>Rendering loads Carbon, so this needs a network connection. Run with
+ * {@code ./gradlew jmh -PjmhIncludes=LaunchProfileBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LaunchProfileBenchmark {
+
+    private static final String CODE = "public class A {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        System.out.println(\"Hello, world!\");\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final ImageOptions OPTIONS = new ImageOptions.ImageOptionsBuilder()
+            .language(ImageOptions.Language.Java)
+            .build();
+
+    @Param({"Default", "Throughput", "LowMemory", "Container"})
+    private LaunchProfile profile;
+
+    private Playwright playwright;
+    private PlaywrightCarbonService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        playwright = Playwright.create();
+        service = new PlaywrightCarbonService(profile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        playwright.close();
+    }
+
+    @Benchmark
+    public void launch() {
+        playwright.chromium().launch(profile.getLaunchOptions()).close();
+    }
+
+    @Benchmark
+    public byte[] render(MemorySampler sampler) {
+        return service.getImage(CODE, OPTIONS);
+    }
+
+    /**
+     * Samples the resident memory of the Chromium processes, excluding the Playwright driver, every
+     * 50 ms during an iteration of {@code render}.
+     */
+    @State(Scope.Benchmark)
+    public static class MemorySampler {
+
+        private final AtomicLong peakBytes = new AtomicLong();
+        private ScheduledExecutorService executor;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            peakBytes.set(0);
+            executor = Executors.newSingleThreadScheduledExecutor();
+            executor.scheduleAtFixedRate(() -> peakBytes.accumulateAndGet(getChromiumBytes(),
+                    Math::max), 0, 50, TimeUnit.MILLISECONDS);
+        }
+
+        @TearDown(Level.Iteration)
+        public void stop() throws InterruptedException {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+            System.out.printf("%nPeak Chromium resident memory: %d MB%n",
+                    peakBytes.get() / (1024 * 1024));
+        }
+
+        /**
+         * Gets the total resident memory of this process' Chromium descendants.
+         *
+         * @return the resident memory in bytes
+         */
+        private static long getChromiumBytes() {
+            return ProcessHandle.current().descendants()
+                    .filter(process -> process.info().command()
+                            .map(command -> Paths.get(command).getFileName().toString())
+                            .filter(name -> name.contains("chrom")
+                                    || name.contains("headless_shell"))
+                            .isPresent())
+                    .mapToLong(process -> getResidentBytes(process.pid()))
+                    .sum();
+        }
+
+        /**
+         * Reads the resident memory of the process with the specified ID.
+         *
+         * @param pid a process ID
+         * @return the resident memory in bytes if readable, else {@code 0}
+         */
+        private static long getResidentBytes(long pid) {
+            Path status = Paths.get("/proc", Long.toString(pid), "status");
+            try {
+                return Files.readAllLines(status).stream()
+                        .filter(line -> line.startsWith("VmRSS:"))
+                        .mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")) * 1024)
+                        .findFirst()
+                        .orElse(0);
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+    }
+}
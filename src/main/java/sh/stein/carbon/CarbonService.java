@@ -2,10 +2,15 @@ package sh.stein.carbon;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A service used to interact with Carbon.
  *
+ * <p>The asynchronous {@code getImageAsync} methods run at most
+ * {@code sh.stein.carbon.maxConcurrentRenders} renders at once, defaulting to the number of
+ * available processors, since each render launches its own browser. Further renders wait.
+ *
  * @see <a href="https://github.com/carbon-app/carbon">https://github.com/carbon-app/carbon</a>
  * @see <a href="https://carbon.now.sh/">https://carbon.now.sh/</a>
  */
@@ -46,4 +51,51 @@ public interface CarbonService {
      * @throws IOException if the file cannot be read
      */
     byte[] getImage(File file, ImageOptions options) throws IOException;
+
+    /**
+     * Gets an image using the specified code asynchronously, on a virtual thread on Java 21 and up.
+     *
+     * @param code code to get an image of
+     * @return a {@code CompletableFuture} completed with the image as a byte array
+     */
+    default CompletableFuture<byte[]> getImageAsync(String code) {
+        return RenderExecutor.submit(() -> getImage(code));
+    }
+
+    /**
+     * Gets an image using the specified code and options asynchronously, on a virtual thread on
+     * Java 21 and up.
+     *
+     * @param code    code to get an image of
+     * @param options an {@code ImageOptions} instance
+     * @return a {@code CompletableFuture} completed with the image as a byte array
+     */
+    default CompletableFuture<byte[]> getImageAsync(String code, ImageOptions options) {
+        return RenderExecutor.submit(() -> getImage(code, options));
+    }
+
+    /**
+     * Gets an image using the specified file's contents asynchronously, on a virtual thread on
+     * Java 21 and up.
+     *
+     * @param file a {@code File} instance
+     * @return a {@code CompletableFuture} completed with the image as a byte array, or
+     * exceptionally with an {@code IOException} if the file cannot be read
+     */
+    default CompletableFuture<byte[]> getImageAsync(File file) {
+        return RenderExecutor.submit(() -> getImage(file));
+    }
+
+    /**
+     * Gets an image using the specified file's contents and options asynchronously, on a virtual
+     * thread on Java 21 and up.
+     *
+     * @param file    a {@code File} instance
+     * @param options an {@code ImageOptions} instance
+     * @return a {@code CompletableFuture} completed with the image as a byte array, or
+     * exceptionally with an {@code IOException} if the file cannot be read
+     */
+    default CompletableFuture<byte[]> getImageAsync(File file, ImageOptions options) {
+        return RenderExecutor.submit(() -> getImage(file, options));
+    }
 }
@@ -0,0 +1,60 @@
+package sh.stein.carbon;
+
+import java.awt.Color;
+
+/**
+ * Parses the CSS colors Carbon accepts as background colors.
+ */
+final class Colors {
+
+    private Colors() {
+    }
+
+    /**
+     * Parses an RGBA or hex color, e.g. {@code rgba(171, 184, 195, 1)} or {@code #ABB8C3}.
+     *
+     * @param value an RGBA or hex color
+     * @return the color if valid, else {@code null}
+     */
+    static Color parse(String value) {
+        String trimmed = value.trim();
+        try {
+            if (trimmed.startsWith("#")) {
+                String hex = trimmed.substring(1);
+                if (hex.length() == 3 || hex.length() == 4) {
+                    StringBuilder expanded = new StringBuilder();
+                    for (char c : hex.toCharArray()) {
+                        expanded.append(c).append(c);
+                    }
+                    hex = expanded.toString();
+                }
+                if (hex.length() == 6) {
+                    return new Color(Integer.parseInt(hex, 16));
+                }
+                if (hex.length() == 8) {
+                    long rgba = Long.parseLong(hex, 16);
+                    return new Color((int) (rgba >> 24) & 0xFF, (int) (rgba >> 16) & 0xFF,
+                            (int) (rgba >> 8) & 0xFF, (int) rgba & 0xFF);
+                }
+                return null;
+            }
+
+            int open = trimmed.indexOf('(');
+            if (!trimmed.startsWith("rgb") || open < 0 || !trimmed.endsWith(")")) {
+                return null;
+            }
+
+            String[] parts = trimmed.substring(open + 1, trimmed.length() - 1).split(",");
+            if (parts.length < 3 || parts.length > 4) {
+                return null;
+            }
+
+            float alpha = parts.length == 4 ? Float.parseFloat(parts[3].trim()) : 1;
+            return new Color(Integer.parseInt(parts[0].trim()),
+                    Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim()),
+                    Math.round(alpha * 255));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -36,6 +36,34 @@ public class ImageOptions {
         return new ImageOptions();
     }
 
+    /**
+     * Gets a copy of these options.
+     *
+     * @return the {@code ImageOptions} instance
+     */
+    private ImageOptions copy() {
+        ImageOptions copy = new ImageOptions();
+        copy.backgroundColor = backgroundColor;
+        copy.dropShadow = dropShadow;
+        copy.dropShadowBlurRadius = dropShadowBlurRadius;
+        copy.dropShadowOffsetY = dropShadowOffsetY;
+        copy.firstLineNumber = firstLineNumber;
+        copy.fontFamily = fontFamily;
+        copy.fontSize = fontSize;
+        copy.language = language;
+        copy.lineHeight = lineHeight;
+        copy.lineNumbers = lineNumbers;
+        copy.paddingHorizontal = paddingHorizontal;
+        copy.paddingVertical = paddingVertical;
+        copy.scaleFactor = scaleFactor;
+        copy.theme = theme;
+        copy.watermark = watermark;
+        copy.widthAdjustment = widthAdjustment;
+        copy.windowControls = windowControls;
+        copy.windowTheme = windowTheme;
+        return copy;
+    }
+
     public String getBackgroundColor() {
         return backgroundColor;
     }
@@ -209,7 +237,23 @@ public class ImageOptions {
      */
     public static class ImageOptionsBuilder {
 
-        private final ImageOptions options = new ImageOptions();
+        private final ImageOptions options;
+
+        /**
+         * Creates a builder starting from the default options.
+         */
+        public ImageOptionsBuilder() {
+            options = new ImageOptions();
+        }
+
+        /**
+         * Creates a builder starting from a copy of the specified options.
+         *
+         * @param options an {@code ImageOptions} instance to copy
+         */
+        public ImageOptionsBuilder(ImageOptions options) {
+            this.options = options.copy();
+        }
 
         /**
          * Sets the background color.
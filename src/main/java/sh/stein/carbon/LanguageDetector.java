@@ -0,0 +1,871 @@
+package sh.stein.carbon;
+
+import static sh.stein.carbon.ImageOptions.Language;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Detects the language of source code in-process, so Carbon does not have to auto-detect it in the
+ * browser.
+ *
+ * <p>Detection tries, in order, the file name and extension, a shebang, an editor modeline and
+ * finally lightweight token statistics. Each {@code Detection} carries a confidence score between
+ * {@code 0} and {@code 1}; callers should fall back to {@code ImageOptions.Language.Auto} when the
+ * confidence is too low to be trusted.
+ */
+public class LanguageDetector {
+
+    /**
+     * The maximum number of characters inspected when computing token statistics.
+     */
+    private static final int MAX_SAMPLE_LENGTH = 16 * 1024;
+
+    /**
+     * The maximum number of times a single token contributes to a language's score.
+     */
+    private static final int MAX_TOKEN_OCCURRENCES = 4;
+
+    /**
+     * The score at which token statistics are considered to be conclusive.
+     */
+    private static final double SATURATION_SCORE = 12;
+
+    private static final double FILE_NAME_CONFIDENCE = 1;
+    private static final double SHEBANG_CONFIDENCE = 0.95;
+    private static final double MODELINE_CONFIDENCE = 0.9;
+    private static final double MAX_STATISTICS_CONFIDENCE = 0.9;
+
+    /**
+     * The number of lines at the start and end of code which may contain a modeline, as in Vim.
+     */
+    private static final int MODELINE_LINES = 5;
+    private static final int MODELINE_REGION_LENGTH = 1024;
+
+    private static final String[] VIM_MODELINE_MARKERS = {"vim:", "vi:", "ex:"};
+
+    private static final String[] COMMENT_PREFIXES = {
+            "#", "//", "/*", "*", "--", ";", "%", "<!--", "\"", "(*", "{-", "'", "REM", "rem"
+    };
+
+    /**
+     * Keywords which end a line with a colon in some languages, and so are not YAML keys.
+     */
+    private static final List<String> BLOCK_KEYWORDS = Arrays.asList(
+            "default", "else", "except", "finally", "private", "protected", "public", "try");
+
+    /**
+     * Operators which are scored as tokens, longest first.
+     */
+    private static final String[] OPERATORS = {
+            "===", "!==", "->", "=>", ":=", "::", "<-", "|>", "</", "/>"
+    };
+
+    /**
+     * A map consisting of lowercase file extensions and their languages.
+     */
+    private static final Map<String, Language> EXTENSION_LANGUAGE_MAP = new HashMap<>() {{
+        put("bash", Language.Bash);
+        put("c", Language.C);
+        put("h", Language.C);
+        put("cc", Language.CPlusPlus);
+        put("cpp", Language.CPlusPlus);
+        put("cxx", Language.CPlusPlus);
+        put("hpp", Language.CPlusPlus);
+        put("hh", Language.CPlusPlus);
+        put("clj", Language.Clojure);
+        put("cljs", Language.Clojure);
+        put("cob", Language.COBOL);
+        put("cbl", Language.COBOL);
+        put("coffee", Language.CoffeeScript);
+        put("cr", Language.Crystal);
+        put("cs", Language.CSharp);
+        put("css", Language.CSS);
+        put("d", Language.D);
+        put("dart", Language.Dart);
+        put("diff", Language.Diff);
+        put("patch", Language.Diff);
+        put("ex", Language.Elixir);
+        put("exs", Language.Elixir);
+        put("elm", Language.Elm);
+        put("erl", Language.Erlang);
+        put("hrl", Language.Erlang);
+        put("f", Language.Fortran);
+        put("f90", Language.Fortran);
+        put("f95", Language.Fortran);
+        put("feature", Language.Gherkin);
+        put("graphql", Language.GraphQL);
+        put("gql", Language.GraphQL);
+        put("go", Language.Go);
+        put("groovy", Language.Groovy);
+        put("gradle", Language.Groovy);
+        put("hbs", Language.Handlebars);
+        put("handlebars", Language.Handlebars);
+        put("hs", Language.Haskell);
+        put("htm", Language.HTMLXML);
+        put("html", Language.HTMLXML);
+        put("xml", Language.HTMLXML);
+        put("svg", Language.HTMLXML);
+        put("java", Language.Java);
+        put("js", Language.JavaScript);
+        put("mjs", Language.JavaScript);
+        put("cjs", Language.JavaScript);
+        put("json", Language.JSON);
+        put("jsx", Language.JSX);
+        put("jl", Language.Julia);
+        put("kt", Language.Kotlin);
+        put("kts", Language.Kotlin);
+        put("tex", Language.LaTeX);
+        put("lisp", Language.Lisp);
+        put("lsp", Language.Lisp);
+        put("lua", Language.Lua);
+        put("md", Language.Markdown);
+        put("markdown", Language.Markdown);
+        put("nb", Language.Mathematica);
+        put("wl", Language.Mathematica);
+        put("nt", Language.NTriples);
+        put("nim", Language.Nim);
+        put("m", Language.ObjectiveC);
+        put("mm", Language.ObjectiveC);
+        put("ml", Language.OCamlFSharp);
+        put("mli", Language.OCamlFSharp);
+        put("fs", Language.OCamlFSharp);
+        put("fsx", Language.OCamlFSharp);
+        put("pas", Language.Pascal);
+        put("pl", Language.Perl);
+        put("pm", Language.Perl);
+        put("php", Language.PHP);
+        put("txt", Language.PlainText);
+        put("ps1", Language.PowerShell);
+        put("psm1", Language.PowerShell);
+        put("py", Language.Python);
+        put("pyw", Language.Python);
+        put("r", Language.R);
+        put("rb", Language.Ruby);
+        put("rs", Language.Rust);
+        put("sass", Language.Sass);
+        put("scss", Language.Sass);
+        put("scala", Language.Scala);
+        put("st", Language.Smalltalk);
+        put("sol", Language.Solidity);
+        put("rq", Language.SPARQL);
+        put("sparql", Language.SPARQL);
+        put("sh", Language.Bash);
+        put("sql", Language.SQL);
+        put("styl", Language.Stylus);
+        put("swift", Language.Swift);
+        put("tcl", Language.TCL);
+        put("toml", Language.TOML);
+        put("ttl", Language.Turtle);
+        put("ts", Language.TypeScript);
+        put("tsx", Language.TSX);
+        put("twig", Language.Twig);
+        put("vb", Language.VBDOTNET);
+        put("v", Language.Verilog);
+        put("sv", Language.Verilog);
+        put("vhd", Language.VHDL);
+        put("vhdl", Language.VHDL);
+        put("vue", Language.Vue);
+        put("xq", Language.XQuery);
+        put("xquery", Language.XQuery);
+        put("yaml", Language.YAML);
+        put("yml", Language.YAML);
+        put("zsh", Language.Bash);
+    }};
+
+    /**
+     * A map consisting of lowercase file names without a telling extension and their languages.
+     */
+    private static final Map<String, Language> FILE_NAME_LANGUAGE_MAP = new HashMap<>() {{
+        put(".bashrc", Language.Bash);
+        put(".htaccess", Language.Apache);
+        put(".zshrc", Language.Bash);
+        put("build.gradle", Language.Groovy);
+        put("cmakelists.txt", Language.PlainText);
+        put("dockerfile", Language.Docker);
+        put("httpd.conf", Language.Apache);
+        put("nginx.conf", Language.NGINX);
+    }};
+
+    /**
+     * A map consisting of interpreter names, as found in shebangs and modelines, and their
+     * languages.
+     */
+    private static final Map<String, Language> INTERPRETER_LANGUAGE_MAP = new HashMap<>() {{
+        put("bash", Language.Bash);
+        put("c", Language.C);
+        put("cpp", Language.CPlusPlus);
+        put("crystal", Language.Crystal);
+        put("cs", Language.CSharp);
+        put("csharp", Language.CSharp);
+        put("css", Language.CSS);
+        put("dash", Language.Bash);
+        put("diff", Language.Diff);
+        put("dockerfile", Language.Docker);
+        put("elixir", Language.Elixir);
+        put("go", Language.Go);
+        put("groovy", Language.Groovy);
+        put("haskell", Language.Haskell);
+        put("html", Language.HTMLXML);
+        put("java", Language.Java);
+        put("javascript", Language.JavaScript);
+        put("js", Language.JavaScript);
+        put("json", Language.JSON);
+        put("julia", Language.Julia);
+        put("kotlin", Language.Kotlin);
+        put("ksh", Language.Bash);
+        put("lisp", Language.Lisp);
+        put("lua", Language.Lua);
+        put("markdown", Language.Markdown);
+        put("nginx", Language.NGINX);
+        put("node", Language.JavaScript);
+        put("perl", Language.Perl);
+        put("php", Language.PHP);
+        put("powershell", Language.PowerShell);
+        put("pwsh", Language.PowerShell);
+        put("python", Language.Python);
+        put("r", Language.R);
+        put("rscript", Language.R);
+        put("ruby", Language.Ruby);
+        put("rust", Language.Rust);
+        put("scala", Language.Scala);
+        put("sh", Language.Bash);
+        put("sql", Language.SQL);
+        put("swift", Language.Swift);
+        put("tclsh", Language.TCL);
+        put("tcl", Language.TCL);
+        put("toml", Language.TOML);
+        put("typescript", Language.TypeScript);
+        put("ts-node", Language.TypeScript);
+        put("xml", Language.HTMLXML);
+        put("yaml", Language.YAML);
+        put("zsh", Language.Bash);
+    }};
+
+    /**
+     * An index consisting of tokens and the weights they contribute to each language.
+     */
+    private static final Map<String, List<TokenWeight>> TOKEN_WEIGHTS = new HashMap<>();
+
+    static {
+        addTokens(Language.Java, 1, "public", "class", "static", "void", "import", "new",
+                "private", "String", "interface", "return");
+        addTokens(Language.Java, 2, "package", "extends", "final", "instanceof", "System");
+        addTokens(Language.Java, 3, "implements", "throws", "@Override", "synchronized");
+
+        addTokens(Language.Kotlin, 1, "var", "package", "import", "data", "object", "override",
+                "println");
+        addTokens(Language.Kotlin, 2, "val", "when");
+        addTokens(Language.Kotlin, 3, "fun", "companion", "suspend", "lateinit");
+
+        addTokens(Language.CSharp, 1, "public", "class", "static", "void", "var", "async",
+                "await", "get", "set", "string", "override", "=>");
+        addTokens(Language.CSharp, 2, "using", "namespace", "foreach");
+        addTokens(Language.CSharp, 3, "Console", "readonly");
+
+        addTokens(Language.C, 1, "int", "char", "void", "free", "return", "->");
+        addTokens(Language.C, 2, "#include", "#define", "struct", "sizeof", "typedef",
+                "unsigned", "NULL");
+        addTokens(Language.C, 3, "printf", "malloc");
+
+        addTokens(Language.CPlusPlus, 1, "class", "namespace", "auto", "public", "const", "::",
+                "->");
+        addTokens(Language.CPlusPlus, 2, "#include", "virtual");
+        addTokens(Language.CPlusPlus, 3, "std", "template", "typename", "cout", "nullptr");
+
+        addTokens(Language.Go, 1, "import", "go", "struct", "interface", "range", "err");
+        addTokens(Language.Go, 2, "package", "nil");
+        addTokens(Language.Go, 3, "func", ":=", "fmt", "defer", "chan");
+
+        addTokens(Language.Rust, 1, "let", "use", "match", "struct", "enum", "None", "Ok",
+                "println", "->", "::");
+        addTokens(Language.Rust, 2, "pub", "Some", "mod");
+        addTokens(Language.Rust, 3, "fn", "mut", "impl", "crate", "unwrap");
+
+        addTokens(Language.Python, 1, "import", "from", "None", "True", "False", "lambda",
+                "print", "class", "in", "not", "and", "or", "is", "yield", "with", "as");
+        addTokens(Language.Python, 2, "self", "pass", "raise");
+        addTokens(Language.Python, 3, "def", "elif", "except", "__init__", "__name__");
+
+        addTokens(Language.Ruby, 1, "do", "nil", "self", "class", "each", "begin");
+        addTokens(Language.Ruby, 2, "def", "end", "require", "module", "unless");
+        addTokens(Language.Ruby, 3, "puts", "elsif", "attr_accessor", "rescue");
+
+        addTokens(Language.JavaScript, 1, "const", "let", "var", "=>", "require", "null",
+                "this", "async", "await", "export", "import", "module");
+        addTokens(Language.JavaScript, 2, "function", "window", "undefined", "typeof", "===",
+                "!==");
+        addTokens(Language.JavaScript, 3, "console", "document", "prototype");
+
+        addTokens(Language.TypeScript, 1, "console", "const", "let", "=>", "export", "import",
+                "interface", "type", "readonly", "enum", "implements", "string", "namespace",
+                "private", "public");
+        addTokens(Language.TypeScript, 2, "number", "boolean", "any", "unknown");
+
+        addTokens(Language.PHP, 1, "function", "namespace", "use", "public", "foreach", "->",
+                "=>");
+        addTokens(Language.PHP, 2, "echo", "array");
+        addTokens(Language.PHP, 3, "php", "$this");
+
+        addTokens(Language.Bash, 1, "do", "export", "local", "elif", "cd", "grep", "function");
+        addTokens(Language.Bash, 2, "echo", "then", "done", "sudo");
+        addTokens(Language.Bash, 3, "fi", "esac");
+
+        addCaseInsensitiveTokens(Language.SQL, 1, "order", "group", "by", "and", "or");
+        addCaseInsensitiveTokens(Language.SQL, 2, "from", "where", "into", "update", "delete",
+                "create", "table", "join", "values");
+        addCaseInsensitiveTokens(Language.SQL, 3, "select", "insert");
+
+        addTokens(Language.HTMLXML, 1, "/>", "div", "span", "class", "href");
+        addTokens(Language.HTMLXML, 2, "</", "html", "body", "head");
+        addTokens(Language.HTMLXML, 3, "DOCTYPE");
+
+        addTokens(Language.CSS, 1, "em", "font", "width", "height");
+        addTokens(Language.CSS, 2, "px", "rem", "color", "margin", "padding", "display",
+                "background", "border", "important");
+
+        addTokens(Language.Swift, 1, "let", "var", "import", "struct", "self", "nil", "init",
+                "override", "print", "->");
+        addTokens(Language.Swift, 2, "func", "Foundation", "extension", "protocol");
+        addTokens(Language.Swift, 3, "guard", "UIKit");
+
+        addTokens(Language.Scala, 1, "var", "case", "extends", "println", "match", "=>");
+        addTokens(Language.Scala, 2, "def", "val", "object", "sealed");
+        addTokens(Language.Scala, 3, "trait", "implicit");
+
+        addTokens(Language.Lua, 1, "function", "then", "nil", "require");
+        addTokens(Language.Lua, 2, "local", "end");
+        addTokens(Language.Lua, 3, "elseif", "pairs", "ipairs");
+
+        addTokens(Language.Perl, 1, "use", "print", "foreach", "unless");
+        addTokens(Language.Perl, 2, "strict", "warnings", "elsif");
+        addTokens(Language.Perl, 3, "my", "sub");
+
+        addTokens(Language.Haskell, 1, "module", "import", "data", "let", "in", "::", "->");
+        addTokens(Language.Haskell, 2, "where", "instance", "Maybe", "IO", "<-", "otherwise");
+        addTokens(Language.Haskell, 3, "deriving");
+
+        addTokens(Language.Docker, 1, "ADD");
+        addTokens(Language.Docker, 2, "ENV", "ARG");
+        addTokens(Language.Docker, 3, "FROM", "RUN", "CMD", "COPY", "WORKDIR", "ENTRYPOINT",
+                "EXPOSE");
+
+        addTokens(Language.Elixir, 1, "def", "do", "end", "fn");
+        addTokens(Language.Elixir, 3, "defmodule", "defp", "|>");
+
+        addTokens(Language.PowerShell, 1, "function", "foreach", "Parameter", "Host", "Output");
+        addTokens(Language.PowerShell, 2, "param", "Write");
+        addTokens(Language.PowerShell, 3, "PSObject", "CmdletBinding");
+    }
+
+    /**
+     * Detects the language of the specified code.
+     *
+     * @param code code to detect the language of
+     * @return the {@code Detection} instance
+     */
+    public Detection detect(String code) {
+        return detect(null, code);
+    }
+
+    /**
+     * Detects the language of the specified code, using the file name it was read from as a hint.
+     *
+     * @param fileName the file name the code was read from, or {@code null} if unknown
+     * @param code     code to detect the language of
+     * @return the {@code Detection} instance
+     */
+    public Detection detect(String fileName, String code) {
+        if (fileName != null) {
+            Language language = detectFileName(fileName);
+            if (language != null) {
+                return new Detection(language, FILE_NAME_CONFIDENCE);
+            }
+        }
+
+        String firstLine = getLine(code, 0);
+        if (firstLine.startsWith("#!")) {
+            Language language = detectShebang(firstLine);
+            if (language != null) {
+                return new Detection(language, SHEBANG_CONFIDENCE);
+            }
+        }
+
+        Language language = detectModeline(code);
+        if (language != null) {
+            return new Detection(language, MODELINE_CONFIDENCE);
+        }
+
+        return detectStatistically(code);
+    }
+
+    /**
+     * Gets the language of the specified file name from its name or extension.
+     *
+     * @param fileName a file name, optionally including its parent directories
+     * @return the language if existent, else {@code null}
+     */
+    private Language detectFileName(String fileName) {
+        int separator = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+        String name = fileName.substring(separator + 1).toLowerCase(Locale.ROOT);
+
+        Language language = FILE_NAME_LANGUAGE_MAP.get(name);
+        if (language != null) {
+            return language;
+        }
+
+        if (name.startsWith("dockerfile")) {
+            return Language.Docker;
+        }
+
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : EXTENSION_LANGUAGE_MAP.get(name.substring(dot + 1));
+    }
+
+    /**
+     * Gets the language of the interpreter named in the specified shebang, e.g.
+     * {@code #!/usr/bin/env python3}.
+     *
+     * @param shebang the first line of the code
+     * @return the language if existent, else {@code null}
+     */
+    private Language detectShebang(String shebang) {
+        String[] parts = shebang.substring(2).trim().split("\\s+");
+        String interpreter = parts[0].substring(parts[0].lastIndexOf('/') + 1);
+
+        // skip env and any of its flags, e.g. #!/usr/bin/env -S node --harmony
+        for (int i = 1; interpreter.equals("env") && i < parts.length; i++) {
+            if (!parts[i].startsWith("-")) {
+                interpreter = parts[i];
+            }
+        }
+
+        return getInterpreterLanguage(interpreter);
+    }
+
+    /**
+     * Gets the language named in a Vim or Emacs modeline in a comment on one of the first or last
+     * lines of the specified code, e.g. {@code # vim: set ft=python:} or
+     * {@code # -*- mode: ruby -*-}.
+     *
+     * @param code code to search for a modeline
+     * @return the language if existent, else {@code null}
+     */
+    private Language detectModeline(String code) {
+        String[] head = code.substring(0, Math.min(code.length(), MODELINE_REGION_LENGTH))
+                .split("\r?\n", MODELINE_LINES + 1);
+        String[] tail = code.substring(Math.max(0, code.length() - MODELINE_REGION_LENGTH))
+                .split("\r?\n");
+
+        List<String> lines = new ArrayList<>();
+        lines.addAll(Arrays.asList(head).subList(0, Math.min(head.length, MODELINE_LINES)));
+        lines.addAll(Arrays.asList(tail).subList(Math.max(0, tail.length - MODELINE_LINES),
+                tail.length));
+
+        for (String line : lines) {
+            if (!isCommentLine(line)) {
+                continue;
+            }
+
+            String value = null;
+            int emacs = line.indexOf("-*-");
+            if (emacs >= 0) {
+                value = getModelineValue(line, emacs, "mode:");
+            }
+
+            int vim = getVimModelineIndex(line);
+            if (value == null && vim >= 0) {
+                value = getModelineValue(line, vim, "ft=");
+                if (value == null) {
+                    value = getModelineValue(line, vim, "filetype=");
+                }
+            }
+
+            Language language = value == null ? null : getInterpreterLanguage(value);
+            if (language != null) {
+                return language;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the index of a {@code vim:}, {@code vi:} or {@code ex:} modeline marker in the
+     * specified line, which must not be part of a longer word.
+     *
+     * @param line a line of code
+     * @return the index if existent, else {@code -1}
+     */
+    private int getVimModelineIndex(String line) {
+        for (String marker : VIM_MODELINE_MARKERS) {
+            for (int index = line.indexOf(marker); index >= 0;
+                    index = line.indexOf(marker, index + 1)) {
+                if (index == 0 || !Character.isLetterOrDigit(line.charAt(index - 1))) {
+                    return index;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets whether the specified line is a comment in any common comment syntax.
+     *
+     * @param line a line of code
+     * @return whether the line is a comment
+     */
+    private boolean isCommentLine(String line) {
+        String stripped = line.strip();
+        for (String prefix : COMMENT_PREFIXES) {
+            if (stripped.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gets the word following the specified key, after the specified index, in the specified line.
+     *
+     * @param line the line of code containing a modeline
+     * @param from the index the modeline starts at
+     * @param key  the modeline key, e.g. {@code ft=}
+     * @return the value if existent, else {@code null}
+     */
+    private String getModelineValue(String line, int from, String key) {
+        int index = line.indexOf(key, from);
+        if (index < 0) {
+            return null;
+        }
+
+        int start = index + key.length();
+        while (start < line.length() && line.charAt(start) == ' ') {
+            start++;
+        }
+
+        int end = start;
+        while (end < line.length() && isModelineChar(line.charAt(end))) {
+            end++;
+        }
+
+        return end > start ? line.substring(start, end) : null;
+    }
+
+    /**
+     * Gets the language of the specified interpreter or file type name, ignoring case and version
+     * suffixes, e.g. {@code python3.9}.
+     *
+     * @param interpreter an interpreter or file type name
+     * @return the language if existent, else {@code null}
+     */
+    private Language getInterpreterLanguage(String interpreter) {
+        String name = interpreter.toLowerCase(Locale.ROOT);
+        Language language = INTERPRETER_LANGUAGE_MAP.get(name);
+        if (language != null) {
+            return language;
+        }
+
+        int end = name.length();
+        while (end > 0 && !Character.isLetter(name.charAt(end - 1))) {
+            end--;
+        }
+
+        return INTERPRETER_LANGUAGE_MAP.get(name.substring(0, end));
+    }
+
+    /**
+     * Detects the language of the specified code by scoring its tokens and line structure against
+     * each language.
+     *
+     * @param code code to detect the language of
+     * @return the {@code Detection} instance
+     */
+    private Detection detectStatistically(String code) {
+        String sample = code.length() > MAX_SAMPLE_LENGTH
+                ? code.substring(0, MAX_SAMPLE_LENGTH)
+                : code;
+
+        Map<Language, Double> scores = new EnumMap<>(Language.class);
+        scoreTokens(sample, scores);
+        scoreLines(sample, scores);
+
+        Language best = null;
+        double bestScore = 0;
+        double secondScore = 0;
+        for (Map.Entry<Language, Double> entry : scores.entrySet()) {
+            double score = entry.getValue();
+            if (score > bestScore) {
+                secondScore = bestScore;
+                bestScore = score;
+                best = entry.getKey();
+            } else if (score > secondScore) {
+                secondScore = score;
+            }
+        }
+
+        if (best == null) {
+            return new Detection(Language.Auto, 0);
+        }
+
+        double margin = (bestScore - secondScore) / bestScore;
+        double evidence = Math.min(1, bestScore / SATURATION_SCORE);
+        return new Detection(best, margin * evidence * MAX_STATISTICS_CONFIDENCE);
+    }
+
+    /**
+     * Adds the weights of each identifier and operator token in the specified sample to the scores.
+     *
+     * @param sample a sample of code
+     * @param scores a map of languages and their scores
+     */
+    private void scoreTokens(String sample, Map<Language, Double> scores) {
+        Map<String, Integer> occurrences = new HashMap<>();
+        int length = sample.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = sample.charAt(i);
+            String token = null;
+
+            if (isIdentifierStart(c) || ((c == '#' || c == '@') && i + 1 < length
+                    && isIdentifierStart(sample.charAt(i + 1)))) {
+                int end = i + 1;
+                while (end < length && isIdentifierPart(sample.charAt(end))) {
+                    end++;
+                }
+                token = sample.substring(i, end);
+                i = end;
+            } else {
+                for (String operator : OPERATORS) {
+                    if (sample.startsWith(operator, i)) {
+                        token = operator;
+                        break;
+                    }
+                }
+                i += token == null ? 1 : token.length();
+            }
+
+            if (token == null) {
+                continue;
+            }
+
+            List<TokenWeight> weights = TOKEN_WEIGHTS.get(token);
+            if (weights == null
+                    || occurrences.merge(token, 1, Integer::sum) > MAX_TOKEN_OCCURRENCES) {
+                continue;
+            }
+
+            for (TokenWeight weight : weights) {
+                scores.merge(weight.language, weight.weight, Double::sum);
+            }
+        }
+    }
+
+    /**
+     * Adds the scores of line-oriented languages, such as diffs, Markdown, YAML and JSON, which
+     * have few telling tokens.
+     *
+     * @param sample a sample of code
+     * @param scores a map of languages and their scores
+     */
+    private void scoreLines(String sample, Map<Language, Double> scores) {
+        String trimmed = sample.trim();
+        if ((trimmed.startsWith("{") && trimmed.endsWith("}"))
+                || (trimmed.startsWith("[") && trimmed.endsWith("]"))) {
+            if (trimmed.contains("\":")) {
+                scores.merge(Language.JSON, SATURATION_SCORE, Double::sum);
+            }
+        }
+
+        double diff = 0;
+        double headings = 0;
+        double markdown = 0;
+        double yaml = 0;
+        int start = 0;
+        int length = sample.length();
+
+        while (start < length) {
+            int end = sample.indexOf('\n', start);
+            if (end < 0) {
+                end = length;
+            }
+            String line = sample.substring(start, end);
+            start = end + 1;
+
+            if (line.startsWith("diff --git") || line.startsWith("+++ ")
+                    || line.startsWith("--- a/") || line.startsWith("@@ ")) {
+                diff += 3;
+            } else if (line.startsWith("#") && line.matches("#{1,6} .*")) {
+                headings += 2;
+            } else if (line.startsWith("```")) {
+                markdown += 2;
+            } else if (line.contains("](")) {
+                markdown += 1;
+            } else if (line.equals("---")) {
+                yaml += 1;
+            } else if (isYamlLine(line)) {
+                yaml += 1;
+            }
+        }
+
+        // a heading is indistinguishable from a shell, Python or Ruby comment, so headings only
+        // count towards Markdown alongside structure no other language has
+        if (markdown > 0) {
+            markdown += headings;
+        }
+
+        if (diff > 0) {
+            scores.merge(Language.Diff, diff, Double::sum);
+        }
+        if (markdown > 0) {
+            scores.merge(Language.Markdown, markdown, Double::sum);
+        }
+        if (yaml > 0) {
+            scores.merge(Language.YAML, yaml, Double::sum);
+        }
+    }
+
+    /**
+     * Gets whether the specified line looks like a YAML mapping or sequence entry, e.g.
+     * {@code key: value} or {@code - item}.
+     *
+     * @param line a line of code
+     * @return whether the line looks like YAML
+     */
+    private boolean isYamlLine(String line) {
+        String stripped = line.stripLeading();
+        if (stripped.isEmpty() || stripped.endsWith(";") || stripped.endsWith("{")
+                || stripped.endsWith(",")) {
+            return false;
+        }
+
+        if (stripped.startsWith("- ")) {
+            return true;
+        }
+
+        int i = 0;
+        while (i < stripped.length() && (isIdentifierPart(stripped.charAt(i))
+                || stripped.charAt(i) == '-')) {
+            i++;
+        }
+
+        if (i == 0 || i == stripped.length() || stripped.charAt(i) != ':') {
+            return false;
+        }
+
+        if (i + 1 == stripped.length()) {
+            return !BLOCK_KEYWORDS.contains(stripped.substring(0, i));
+        }
+
+        return stripped.charAt(i + 1) == ' ';
+    }
+
+    /**
+     * Gets the line at the specified index, without its line terminator.
+     *
+     * @param code  code to get the line of
+     * @param start the index the line starts at
+     * @return the line
+     */
+    private String getLine(String code, int start) {
+        int end = code.indexOf('\n', start);
+        String line = end < 0 ? code.substring(start) : code.substring(start, end);
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_' || c == '$';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static boolean isModelineChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '+' || c == '-' || c == '#';
+    }
+
+    /**
+     * Adds the specified tokens to the index with the specified weight.
+     *
+     * @param language the language the tokens are telling of
+     * @param weight   the weight each token contributes to the language's score
+     * @param tokens   case-sensitive identifiers or operators
+     */
+    private static void addTokens(Language language, double weight, String... tokens) {
+        for (String token : tokens) {
+            TOKEN_WEIGHTS.computeIfAbsent(token, key -> new ArrayList<>())
+                    .add(new TokenWeight(language, weight));
+        }
+    }
+
+    /**
+     * Adds the lowercase and uppercase forms of the specified tokens to the index with the
+     * specified weight.
+     *
+     * @param language the language the tokens are telling of
+     * @param weight   the weight each token contributes to the language's score
+     * @param tokens   lowercase identifiers
+     */
+    private static void addCaseInsensitiveTokens(Language language, double weight,
+            String... tokens) {
+        for (String token : tokens) {
+            addTokens(language, weight, token, token.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * The weight a token contributes to a language's score.
+     */
+    private static class TokenWeight {
+
+        private final Language language;
+        private final double weight;
+
+        TokenWeight(Language language, double weight) {
+            this.language = language;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * The result of detecting the language of some code.
+     */
+    public static class Detection {
+
+        private final Language language;
+        private final double confidence;
+
+        Detection(Language language, double confidence) {
+            this.language = language;
+            this.confidence = confidence;
+        }
+
+        /**
+         * Gets the detected language, {@code ImageOptions.Language.Auto} if none could be
+         * detected.
+         *
+         * @return the {@code ImageOptions.Language} value
+         */
+        public Language getLanguage() {
+            return language;
+        }
+
+        /**
+         * Gets the confidence of the detection.
+         *
+         * @return a value between {@code 0} and {@code 1}, inclusive
+         */
+        public double getConfidence() {
+            return confidence;
+        }
+    }
+}
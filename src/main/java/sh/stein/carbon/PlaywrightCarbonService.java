@@ -4,10 +4,12 @@ import static sh.stein.carbon.ImageOptions.Language;
 import static sh.stein.carbon.ImageOptions.WindowTheme;
 
 import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserType;
 import com.microsoft.playwright.Page;
 import com.microsoft.playwright.Page.ScreenshotOptions;
 import com.microsoft.playwright.Playwright;
 import com.microsoft.playwright.options.BoundingBox;
+import com.microsoft.playwright.options.ViewportSize;
 import java.io.File;
 import java.io.IOException;
 import java.net.URLEncoder;
@@ -15,7 +17,11 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -27,6 +33,14 @@ public class PlaywrightCarbonService implements CarbonService {
     private static final String CARBON_URI = "https://carbon.now.sh";
     private static final String IMAGE_SELECTOR = "#export-container .container-bg";
 
+    /**
+     * The minimum confidence a detected language must have to be used in place of
+     * {@code ImageOptions.Language.Auto}, below which Carbon detects the language itself.
+     */
+    private static final double MIN_DETECTION_CONFIDENCE = 0.5;
+
+    private static final LanguageDetector LANGUAGE_DETECTOR = new LanguageDetector();
+
     /**
      * A map consisting of {@code ImageOptions.Language} keys and their string equivalents.
      */
@@ -118,6 +132,43 @@ public class PlaywrightCarbonService implements CarbonService {
         put(WindowTheme.Outlined, "bw");
     }};
 
+    private final BrowserType.LaunchOptions launchOptions;
+    private final int viewportWidth;
+    private final int viewportHeight;
+
+    /**
+     * Creates a service which launches Chromium with its default flags.
+     */
+    public PlaywrightCarbonService() {
+        this(LaunchProfile.Default);
+    }
+
+    /**
+     * Creates a service which launches Chromium using the specified profile.
+     *
+     * @param launchProfile a {@code PlaywrightCarbonService.LaunchProfile} value
+     */
+    public PlaywrightCarbonService(LaunchProfile launchProfile) {
+        this(launchProfile.getLaunchOptions(), launchProfile.viewportWidth,
+                launchProfile.viewportHeight);
+    }
+
+    /**
+     * Creates a service which launches Chromium using the specified options.
+     *
+     * @param launchOptions a {@code BrowserType.LaunchOptions} instance
+     */
+    public PlaywrightCarbonService(BrowserType.LaunchOptions launchOptions) {
+        this(launchOptions, 0, 0);
+    }
+
+    private PlaywrightCarbonService(BrowserType.LaunchOptions launchOptions, int viewportWidth,
+            int viewportHeight) {
+        this.launchOptions = launchOptions;
+        this.viewportWidth = viewportWidth;
+        this.viewportHeight = viewportHeight;
+    }
+
     /**
      * Loads Carbon using Playwright, then screenshots the image created with the specified code and
      * default options.
@@ -140,26 +191,101 @@ public class PlaywrightCarbonService implements CarbonService {
      */
     @Override
     public byte[] getImage(String code, ImageOptions options) {
+        return getImage(code, options, resolveLanguage(null, code, options.getLanguage()));
+    }
+
+    /**
+     * Loads Carbon using Playwright, then screenshots the image created with the specified code,
+     * options and resolved language.
+     *
+     * @param code     code to get an image of
+     * @param options  an {@code ImageOptions} instance
+     * @param language the language to use in place of the options' language
+     * @return the image as a byte array
+     */
+    byte[] getImage(String code, ImageOptions options, Language language) {
+        return getImages(Collections.singletonList(code), options, language).get(0);
+    }
+
+    /**
+     * Launches a single browser and page, then loads Carbon and screenshots the image created with
+     * each of the specified codes in turn, so several images only pay for one browser launch.
+     *
+     * @param codes    the codes to get images of
+     * @param options  an {@code ImageOptions} instance
+     * @param language the language to use in place of the options' language
+     * @return the images as byte arrays, in the order of the codes
+     */
+    List<byte[]> getImages(List<String> codes, ImageOptions options, Language language) {
         try (Playwright playwright = Playwright.create()) {
-            Browser browser = playwright.chromium().launch();
+            Browser browser = playwright.chromium().launch(launchOptions);
             int scaleFactor = options.getScaleFactor();
-            Page page = browser.newPage(
-                    new Browser.NewPageOptions().setDeviceScaleFactor(scaleFactor));
-            page.navigate(getURI(code, options));
-
-            // the element screenshot method in playwright also captures the background for whatever
-            // reason, so manually capture the element
-            BoundingBox box = page.querySelector(IMAGE_SELECTOR).boundingBox();
+            Browser.NewPageOptions pageOptions = new Browser.NewPageOptions()
+                    .setDeviceScaleFactor(scaleFactor);
+            if (viewportWidth > 0 && viewportHeight > 0) {
+                pageOptions.setViewportSize(viewportWidth, viewportHeight);
+            }
+            Page page = browser.newPage(pageOptions);
 
-            ScreenshotOptions screenshotOptions = new ScreenshotOptions()
-                    .setClip(box.x, box.y, box.width, box.height)
-                    .setFullPage(true)
-                    .setOmitBackground(true);
+            List<byte[]> images = new ArrayList<>();
+            for (String code : codes) {
+                page.navigate(getURI(code, options, language));
+                images.add(captureWithScreenshot(page, scaleFactor));
+            }
 
-            return page.screenshot(screenshotOptions);
+            return images;
         }
     }
 
+    /**
+     * Captures the image element using Playwright's page screenshot method.
+     *
+     * @param page        the page Carbon is loaded in
+     * @param scaleFactor the page's device scale factor
+     * @return the image as a byte array
+     */
+    private byte[] captureWithScreenshot(Page page, int scaleFactor) {
+        // the element screenshot method in playwright also captures the background for whatever
+        // reason, so manually capture the element
+        BoundingBox box = page.querySelector(IMAGE_SELECTOR).boundingBox();
+        double[] clip = getDeviceClip(box.x, box.y, box.width, box.height, scaleFactor);
+
+        // a full page screenshot resizes the viewport, so only take one when the image overflows it
+        ViewportSize viewport = page.viewportSize();
+        boolean fullPage = viewport == null
+                || clip[0] + clip[2] > viewport.width
+                || clip[1] + clip[3] > viewport.height;
+
+        ScreenshotOptions screenshotOptions = new ScreenshotOptions()
+                .setClip(clip[0], clip[1], clip[2], clip[3])
+                .setFullPage(fullPage)
+                .setOmitBackground(true);
+
+        return page.screenshot(screenshotOptions);
+    }
+
+    /**
+     * Expands the specified region to whole device pixels, so the captured image is neither
+     * resampled nor missing a partially covered row or column.
+     *
+     * @param x           the region's left edge, in CSS pixels
+     * @param y           the region's top edge, in CSS pixels
+     * @param width       the region's width, in CSS pixels
+     * @param height      the region's height, in CSS pixels
+     * @param scaleFactor the page's device scale factor
+     * @return the expanded region's x, y, width and height, in CSS pixels
+     */
+    static double[] getDeviceClip(double x, double y, double width, double height,
+            int scaleFactor) {
+        double left = Math.floor(x * scaleFactor);
+        double top = Math.floor(y * scaleFactor);
+        double right = Math.ceil((x + width) * scaleFactor);
+        double bottom = Math.ceil((y + height) * scaleFactor);
+
+        return new double[]{left / scaleFactor, top / scaleFactor, (right - left) / scaleFactor,
+                (bottom - top) / scaleFactor};
+    }
+
     /**
      * Loads Carbon using Playwright, then screenshots the image created with the specified file's
      * contents and default options.
@@ -186,16 +312,40 @@ public class PlaywrightCarbonService implements CarbonService {
     public byte[] getImage(File file, ImageOptions options) throws IOException {
         Path path = file.toPath();
         String contents = new String(Files.readAllBytes(path), Charset.defaultCharset());
-        return getImage(contents, options);
+        return getImage(contents, options,
+                resolveLanguage(file.getName(), contents, options.getLanguage()));
+    }
+
+    /**
+     * Resolves {@code ImageOptions.Language.Auto} to a concrete language using a
+     * {@code LanguageDetector}, so Carbon does not have to detect it in the browser.
+     *
+     * @param fileName the file name the code was read from, or {@code null} if unknown
+     * @param code     code to detect the language of
+     * @param language the requested {@code ImageOptions.Language} value
+     * @return the requested language if not {@code Auto}, else the detected language if confident,
+     * else {@code Auto}
+     */
+    Language resolveLanguage(String fileName, String code, Language language) {
+        if (language != Language.Auto) {
+            return language;
+        }
+
+        LanguageDetector.Detection detection = LANGUAGE_DETECTOR.detect(fileName, code);
+        return detection.getConfidence() >= MIN_DETECTION_CONFIDENCE
+                ? detection.getLanguage()
+                : Language.Auto;
     }
 
     /**
      * Gets a URI string with the appropriate query string parameters using the specified options.
      *
-     * @param options an {@code ImageOptions} instance
+     * @param code     code to get an image of
+     * @param options  an {@code ImageOptions} instance
+     * @param language the language to use in place of the options' language
      * @return the URI string
      */
-    private String getURI(String code, ImageOptions options) {
+    private String getURI(String code, ImageOptions options, Language language) {
         Map<String, String> parameters = new HashMap<>() {{
             put("code", code);
             put("bg", options.getBackgroundColor());
@@ -213,10 +363,10 @@ public class PlaywrightCarbonService implements CarbonService {
             put("wa", Boolean.toString(options.getWidthAdjustment()));
             put("wc", Boolean.toString(options.getWindowControls()));
             put("wm", Boolean.toString(options.getWatermark()));
-            Optional<String> languageString = getLanguageString(options.getLanguage());
-            languageString.ifPresent(language -> put("l", language));
+            Optional<String> languageString = getLanguageString(language);
+            languageString.ifPresent(languageValue -> put("l", languageValue));
             Optional<String> windowThemeString = getWindowThemeString(options.getWindowTheme());
-            windowThemeString.ifPresent(windowTheme -> put("wt", windowTheme));
+            windowThemeString.ifPresent(windowThemeValue -> put("wt", windowThemeValue));
         }};
 
         return addQueryParameters(CARBON_URI, parameters);
@@ -262,4 +412,89 @@ public class PlaywrightCarbonService implements CarbonService {
     private Optional<String> getWindowThemeString(WindowTheme windowTheme) {
         return Optional.of(WINDOW_THEME_STRING_MAP.get(windowTheme));
     }
+
+    /**
+     * A curated set of Chromium launch flags and page settings.
+     *
+     * <p>Playwright already launches Chromium without extensions, background networking, sync,
+     * background throttling or {@code /dev/shm}, so profiles only add flags that differ from its
+     * defaults. Features a profile disables are merged with the ones Playwright disables, since
+     * Chromium only honors the last {@code --disable-features} flag.
+     */
+    public enum LaunchProfile {
+        /**
+         * Chromium's general purpose defaults, as launched by Playwright.
+         */
+        Default(0, 0, Collections.emptyList()),
+        /**
+         * Favors renders per second, skipping GPU process startup and component updates, and
+         * disabling features which fetch in the background.
+         */
+        Throughput(0, 0, Arrays.asList("Translate", "OptimizationHints"),
+                "--disable-gpu",
+                "--disable-component-update",
+                "--disable-domain-reliability"),
+        /**
+         * Favors resident memory, limiting Chromium to a single renderer process with a small
+         * heap and a small viewport.
+         */
+        LowMemory(800, 600, Arrays.asList("site-per-process", "IsolateOrigins"),
+                "--disable-gpu",
+                "--renderer-process-limit=1",
+                "--disable-site-isolation-trials",
+                "--js-flags=--max-old-space-size=256",
+                "--aggressive-cache-discard"),
+        /**
+         * Favors small containers, skipping the zygote process and GPU process, and rasterizing in
+         * software without a SwiftShader fallback. Requires Chromium's sandbox to be disabled, as
+         * it is by Playwright's default.
+         */
+        Container(0, 0, Collections.emptyList(),
+                "--no-zygote",
+                "--disable-gpu",
+                "--disable-software-rasterizer");
+
+        /**
+         * The features Playwright 1.15 disables, which must match the Playwright version this
+         * library depends on. If it does not, the merged list is still passed last and wins.
+         */
+        static final String PLAYWRIGHT_DISABLED_FEATURES = "ImprovedCookieControls,"
+                + "LazyFrameLoading,GlobalMediaControls,DestroyProfileOnBrowserClose,MediaRouter";
+
+        private static final String DISABLE_FEATURES_FLAG = "--disable-features=";
+
+        private final int viewportWidth;
+        private final int viewportHeight;
+        private final List<String> disabledFeatures;
+        private final List<String> args;
+
+        LaunchProfile(int viewportWidth, int viewportHeight, List<String> disabledFeatures,
+                String... args) {
+            this.viewportWidth = viewportWidth;
+            this.viewportHeight = viewportHeight;
+            this.disabledFeatures = disabledFeatures;
+            this.args = Arrays.asList(args);
+        }
+
+        /**
+         * Gets the launch options of this profile.
+         *
+         * @return a new {@code BrowserType.LaunchOptions} instance
+         */
+        public BrowserType.LaunchOptions getLaunchOptions() {
+            BrowserType.LaunchOptions launchOptions = new BrowserType.LaunchOptions();
+            if (this == Default) {
+                return launchOptions;
+            }
+
+            List<String> profileArgs = new ArrayList<>(args);
+            if (!disabledFeatures.isEmpty()) {
+                String playwrightFlag = DISABLE_FEATURES_FLAG + PLAYWRIGHT_DISABLED_FEATURES;
+                launchOptions.setIgnoreDefaultArgs(Collections.singletonList(playwrightFlag));
+                profileArgs.add(playwrightFlag + "," + String.join(",", disabledFeatures));
+            }
+
+            return launchOptions.setArgs(profileArgs);
+        }
+    }
 }
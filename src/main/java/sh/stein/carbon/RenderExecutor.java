@@ -0,0 +1,95 @@
+package sh.stein.carbon;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs renders asynchronously, on virtual threads on Java 21 and up, else on platform threads.
+ *
+ * <p>Each render creates, uses and closes its own Playwright instance on the thread it runs on, so
+ * browser work never moves between threads. Since every render launches its own Playwright driver
+ * and Chromium processes, at most {@code sh.stein.carbon.maxConcurrentRenders} renders run at
+ * once, defaulting to the number of available processors. Further renders wait for a permit.
+ */
+final class RenderExecutor {
+
+    /**
+     * The system property setting the maximum number of renders to run at once.
+     */
+    static final String MAX_CONCURRENT_RENDERS_PROPERTY = "sh.stein.carbon.maxConcurrentRenders";
+
+    private static final RenderExecutor DEFAULT = new RenderExecutor(getMaxConcurrentRenders());
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    /**
+     * Creates an executor running at most the specified number of renders at once.
+     *
+     * @param maxConcurrentRenders the maximum number of renders to run at once
+     * @throws IllegalArgumentException if {@code maxConcurrentRenders} is not positive
+     */
+    RenderExecutor(int maxConcurrentRenders) {
+        if (maxConcurrentRenders < 1) {
+            throw new IllegalArgumentException("maxConcurrentRenders must be positive");
+        }
+
+        this.executor = RenderThreads.newExecutor(maxConcurrentRenders);
+        this.permits = new Semaphore(maxConcurrentRenders, true);
+    }
+
+    /**
+     * Runs the specified render asynchronously on the shared executor.
+     *
+     * @param render a render, which may throw a checked exception
+     * @return a {@code CompletableFuture} completed with the image, or exceptionally with the
+     * exception thrown by the render
+     */
+    static CompletableFuture<byte[]> submit(Callable<byte[]> render) {
+        return DEFAULT.execute(render);
+    }
+
+    /**
+     * Runs the specified render asynchronously once fewer than the maximum number of renders are
+     * running.
+     *
+     * @param render a render, which may throw a checked exception
+     * @return a {@code CompletableFuture} completed with the image, or exceptionally with the
+     * exception thrown by the render
+     */
+    CompletableFuture<byte[]> execute(Callable<byte[]> render) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+                return;
+            }
+
+            try {
+                future.complete(render.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                permits.release();
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Gets the maximum number of renders to run at once from its system property.
+     *
+     * @return the property's value if set and positive, else the number of available processors
+     */
+    static int getMaxConcurrentRenders() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int maxConcurrentRenders = Integer.getInteger(MAX_CONCURRENT_RENDERS_PROPERTY, processors);
+        return maxConcurrentRenders > 0 ? maxConcurrentRenders : processors;
+    }
+}
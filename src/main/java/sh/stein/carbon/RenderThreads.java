@@ -0,0 +1,42 @@
+package sh.stein.carbon;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads renders run on.
+ *
+ * <p>This class is replaced by a version using virtual threads in the multi-release JAR on Java 21
+ * and up.
+ */
+final class RenderThreads {
+
+    private RenderThreads() {
+    }
+
+    /**
+     * Creates an executor which runs renders on at most the specified number of daemon platform
+     * threads, queueing the rest rather than holding a thread for each waiting render. Idle
+     * threads exit after a minute.
+     *
+     * @param maxThreads the maximum number of renders to run at once
+     * @return the {@code ExecutorService} instance
+     */
+    static ExecutorService newExecutor(int maxThreads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "carbon-render-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 1,
+                TimeUnit.MINUTES, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
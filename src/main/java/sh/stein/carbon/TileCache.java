@@ -0,0 +1,116 @@
+package sh.stein.carbon;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used cache of rendered tiles, bounded by the memory their pixels take up.
+ */
+final class TileCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * Creates a cache holding at most the specified number of bytes of pixels.
+     *
+     * @param maxBytes the maximum number of bytes of pixels to cache
+     * @throws IllegalArgumentException if {@code maxBytes} is not positive
+     */
+    TileCache(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the tile with the specified key, marking it as recently used.
+     *
+     * @param key a tile key
+     * @return the tile if cached, else {@code null}
+     */
+    synchronized Tile get(String key) {
+        return tiles.get(key);
+    }
+
+    /**
+     * Caches the specified tile, evicting the least recently used tiles until the cache fits in its
+     * bound. Tiles larger than the bound are not cached.
+     *
+     * @param key  a tile key
+     * @param tile the rendered tile
+     */
+    synchronized void put(String key, Tile tile) {
+        if (tile.getBytes() > maxBytes) {
+            return;
+        }
+
+        Tile previous = tiles.put(key, tile);
+        if (previous != null) {
+            bytes -= previous.getBytes();
+        }
+        bytes += tile.getBytes();
+
+        Iterator<Map.Entry<String, Tile>> iterator = tiles.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().getBytes();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Gets the number of bytes of pixels cached.
+     *
+     * @return the number of bytes
+     */
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of tiles cached.
+     *
+     * @return the number of tiles
+     */
+    synchronized int size() {
+        return tiles.size();
+    }
+
+    /**
+     * A rendered tile, consisting of the rows of its lines and the window's background color.
+     */
+    static final class Tile {
+
+        private final BufferedImage strip;
+        private final int background;
+
+        /**
+         * Creates a tile.
+         *
+         * @param strip      an image of the tile's lines, which must not share its raster with a
+         *                   larger image
+         * @param background the window's background color, as an ARGB integer
+         */
+        Tile(BufferedImage strip, int background) {
+            this.strip = strip;
+            this.background = background;
+        }
+
+        BufferedImage getStrip() {
+            return strip;
+        }
+
+        int getBackground() {
+            return background;
+        }
+
+        long getBytes() {
+            return (long) strip.getWidth() * strip.getHeight() * Integer.BYTES;
+        }
+    }
+}
@@ -0,0 +1,744 @@
+package sh.stein.carbon;
+
+import static sh.stein.carbon.ImageOptions.Language;
+import static sh.stein.carbon.ImageOptions.WindowTheme;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * Interacts with Carbon incrementally, for code which is re-rendered after small edits.
+ *
+ * <p>Code is split into tiles of roughly 20 lines. Each tile is rendered by Carbon as a bare
+ * window, without padding, drop shadow or window controls, and cached by its contents and options.
+ * Only the tiles whose lines changed since a previous render are rendered again, with one Carbon
+ * page load per run of adjacent changed tiles, all in a single browser; the window chrome, padding
+ * and drop shadow are then drawn once around the stitched tiles.
+ *
+ * <p>Tile boundaries are chosen by the contents of the lines around them rather than by line
+ * numbers, so inserting or deleting lines only changes the tiles around the edit, not every tile
+ * after it.
+ *
+ * <p>This comes with some limits:
+ * <ul>
+ *     <li>Tiles are highlighted independently, so tokens spanning several tiles, such as block
+ *     comments, may be highlighted differently than in a single render.</li>
+ *     <li>The window controls, corners and drop shadow are drawn to match Carbon's, but are not
+ *     pixel identical to them.</li>
+ *     <li>Since every render launches a browser, an edit costs at least one launch and page load,
+ *     however small it is.</li>
+ *     <li>Code whose language is neither specified nor confidently detected, line heights which
+ *     are not a whole number of device pixels, line numbers, watermarks, sizes which are not px or
+ *     % values, and code whose rendered padding does not match its expected layout are not tiled;
+ *     these fall back to rendering the whole code at once. Carbon would otherwise guess the
+ *     language of each run separately, and round fractional line heights differently at the seams
+ *     between tiles than in a single render.</li>
+ * </ul>
+ */
+public class TiledCarbonService implements CarbonService {
+
+    private static final int DEFAULT_LINES_PER_TILE = 20;
+    private static final long DEFAULT_MAX_CACHED_BYTES = 128L * 1024 * 1024;
+
+    /**
+     * The maximum number of options whose window padding is remembered.
+     */
+    private static final int MAX_CACHED_PADDINGS = 256;
+
+    /**
+     * Window chrome dimensions, in CSS pixels, matching Carbon's window.
+     */
+    private static final int CONTROLS_HEIGHT = 36;
+    private static final int CONTROLS_LEFT = 18;
+    private static final int CONTROLS_SPACING = 20;
+    private static final int CONTROLS_DIAMETER = 12;
+    private static final int CORNER_RADIUS = 5;
+    private static final float SHADOW_OPACITY = 0.55f;
+
+    private static final Color[] CONTROLS_COLORS = {
+            new Color(0xFF5F56), new Color(0xFFBD2E), new Color(0x27C93F)
+    };
+
+    private final PlaywrightCarbonService service;
+    private final int linesPerTile;
+    private final TileCache tiles;
+
+    /**
+     * A least recently used cache consisting of options keys and the vertical padding, in device
+     * pixels, Carbon renders above and below the code with those options.
+     */
+    private final Map<String, Integer> paddings = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > MAX_CACHED_PADDINGS;
+        }
+    };
+
+    /**
+     * Creates a service rendering tiles of roughly 20 lines with a new
+     * {@code PlaywrightCarbonService}, caching up to 128 MB of tiles.
+     */
+    public TiledCarbonService() {
+        this(new PlaywrightCarbonService());
+    }
+
+    /**
+     * Creates a service rendering tiles of roughly 20 lines with the specified service, caching up
+     * to 128 MB of tiles.
+     *
+     * @param service a {@code PlaywrightCarbonService} instance to render tiles with
+     */
+    public TiledCarbonService(PlaywrightCarbonService service) {
+        this(service, DEFAULT_LINES_PER_TILE, DEFAULT_MAX_CACHED_BYTES);
+    }
+
+    /**
+     * Creates a service rendering tiles with the specified service.
+     *
+     * @param service        a {@code PlaywrightCarbonService} instance to render tiles with
+     * @param linesPerTile   the average number of lines in each tile, tiles have between half and
+     *                       twice as many lines
+     * @param maxCachedBytes the maximum number of bytes of decoded tile pixels to cache, each
+     *                       pixel taking four bytes
+     * @throws IllegalArgumentException if {@code linesPerTile} or {@code maxCachedBytes} is not
+     *                                  positive
+     */
+    public TiledCarbonService(PlaywrightCarbonService service, int linesPerTile,
+            long maxCachedBytes) {
+        if (linesPerTile < 1) {
+            throw new IllegalArgumentException("linesPerTile must be positive");
+        }
+
+        this.service = service;
+        this.linesPerTile = linesPerTile;
+        this.tiles = new TileCache(maxCachedBytes);
+    }
+
+    /**
+     * Renders the tiles of the specified code which are not cached, then stitches the image using
+     * default options.
+     *
+     * @param code code to get an image of
+     * @return the image as a byte array
+     */
+    @Override
+    public byte[] getImage(String code) {
+        return getImage(code, ImageOptions.getDefault());
+    }
+
+    /**
+     * Renders the tiles of the specified code which are not cached, then stitches the image using
+     * the specified options.
+     *
+     * @param code    code to get an image of
+     * @param options an {@code ImageOptions} instance
+     * @return the image as a byte array
+     */
+    @Override
+    public byte[] getImage(String code, ImageOptions options) {
+        return getImage(code, options, service.resolveLanguage(null, code, options.getLanguage()));
+    }
+
+    /**
+     * Renders the tiles of the specified file's contents which are not cached, then stitches the
+     * image using default options.
+     *
+     * @param file a {@code File} instance to read the contents of
+     * @return the image as a byte array
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public byte[] getImage(File file) throws IOException {
+        return getImage(file, ImageOptions.getDefault());
+    }
+
+    /**
+     * Renders the tiles of the specified file's contents which are not cached, then stitches the
+     * image using the specified options.
+     *
+     * @param file    a {@code File} instance to read the contents of
+     * @param options an {@code ImageOptions} instance
+     * @return the image as a byte array
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public byte[] getImage(File file, ImageOptions options) throws IOException {
+        String contents = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+        return getImage(contents, options,
+                service.resolveLanguage(file.getName(), contents, options.getLanguage()));
+    }
+
+    /**
+     * Renders the tiles of the specified code which are not cached, then stitches the image.
+     *
+     * @param code     code to get an image of
+     * @param options  an {@code ImageOptions} instance
+     * @param language the resolved language
+     * @return the image as a byte array
+     */
+    private byte[] getImage(String code, ImageOptions options, Language language) {
+        String[] lines = code.split("\r?\n", -1);
+        Chrome chrome = Chrome.of(options);
+        if (chrome == null || !chrome.hasWholeLineHeight() || language == Language.Auto
+                || lines.length <= linesPerTile) {
+            return service.getImage(code, options, language);
+        }
+
+        String optionsKey = getOptionsKey(options, language);
+        int[] boundaries = getTileBoundaries(lines);
+        int tileCount = boundaries.length - 1;
+        String[] keys = new String[tileCount];
+        TileCache.Tile[] rendered = new TileCache.Tile[tileCount];
+        for (int i = 0; i < tileCount; i++) {
+            keys[i] = getTileKey(optionsKey, lines, boundaries[i], boundaries[i + 1]);
+            rendered[i] = tiles.get(keys[i]);
+        }
+
+        // the padding is measured while rendering, so render at least one tile if it was evicted
+        synchronized (paddings) {
+            if (!paddings.containsKey(optionsKey)) {
+                rendered[0] = null;
+            }
+        }
+
+        // find each run of adjacent missing tiles, as the first and last tile of the run
+        List<int[]> runs = new ArrayList<>();
+        for (int first = 0; first < tileCount; first++) {
+            if (rendered[first] != null) {
+                continue;
+            }
+
+            int last = first;
+            while (last + 1 < tileCount && rendered[last + 1] == null) {
+                last++;
+            }
+            runs.add(new int[] {first, last});
+            first = last;
+        }
+
+        // render every run in a single browser, a launch costs far more than a page load
+        if (!runs.isEmpty()) {
+            List<String> codes = new ArrayList<>();
+            for (int[] run : runs) {
+                codes.add(String.join("\n",
+                        Arrays.copyOfRange(lines, boundaries[run[0]], boundaries[run[1] + 1])));
+            }
+            List<byte[]> windows = service.getImages(codes, getTileOptions(options), language);
+
+            for (int i = 0; i < runs.size(); i++) {
+                int first = runs.get(i)[0];
+                int last = runs.get(i)[1];
+                List<TileCache.Tile> run = sliceRun(decode(windows.get(i)), boundaries, first,
+                        last, chrome, optionsKey);
+                if (run == null) {
+                    return service.getImage(code, options, language);
+                }
+
+                for (int j = first; j <= last; j++) {
+                    rendered[j] = run.get(j - first);
+                    tiles.put(keys[j], rendered[j]);
+                }
+            }
+        }
+
+        Integer padding;
+        synchronized (paddings) {
+            padding = paddings.get(optionsKey);
+        }
+
+        return encode(stitch(rendered, padding == null ? 0 : padding, options, chrome));
+    }
+
+    /**
+     * Gets the indexes of the lines each tile starts at, followed by the number of lines.
+     *
+     * <p>A tile ends after a line whose hash is divisible by the average number of lines per tile,
+     * once it has at least half that many lines, or once it has twice that many lines. Since this
+     * only depends on the lines since the previous boundary, an edit only moves the boundaries up
+     * to the first unchanged boundary after it.
+     *
+     * @param lines the lines of code
+     * @return the tile boundaries
+     */
+    int[] getTileBoundaries(String[] lines) {
+        int minLines = Math.max(1, linesPerTile / 2);
+        int maxLines = linesPerTile * 2;
+        List<Integer> boundaries = new ArrayList<>();
+        boundaries.add(0);
+
+        int start = 0;
+        for (int i = 0; i < lines.length; i++) {
+            int length = i - start + 1;
+            int hash = (lines[i].hashCode() * 0x9E3779B1) >>> 8;
+            if (length >= maxLines
+                    || (length >= minLines && hash % linesPerTile == 0)) {
+                start = i + 1;
+                if (start < lines.length) {
+                    boundaries.add(start);
+                }
+            }
+        }
+        boundaries.add(lines.length);
+
+        int[] result = new int[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the options tiles are rendered with, a bare window without padding, drop shadow, window
+     * controls or rounded corners.
+     *
+     * @param options an {@code ImageOptions} instance
+     * @return the {@code ImageOptions} instance
+     */
+    private ImageOptions getTileOptions(ImageOptions options) {
+        return new ImageOptions.ImageOptionsBuilder(options)
+                .backgroundColor("rgba(0, 0, 0, 0)")
+                .dropShadow(false)
+                .paddingHorizontal("0px")
+                .paddingVertical("0px")
+                .windowControls(false)
+                .windowTheme(WindowTheme.SharpEdges)
+                .build();
+    }
+
+    /**
+     * Slices a bare window rendered with the tiles from {@code first} to {@code last}, inclusive,
+     * into tiles.
+     *
+     * @param window     the rendered bare window
+     * @param boundaries the tile boundaries
+     * @param first      the index of the first tile in the window
+     * @param last       the index of the last tile in the window
+     * @param chrome     the window chrome dimensions
+     * @param optionsKey the key of the caller's options
+     * @return the tiles, or {@code null} if the window does not have the expected layout
+     */
+    private List<TileCache.Tile> sliceRun(BufferedImage window, int[] boundaries, int first,
+            int last, Chrome chrome, String optionsKey) {
+        int startLine = boundaries[first];
+        int endLine = boundaries[last + 1];
+        int width = window.getWidth();
+        int height = window.getHeight();
+        double lineHeight = chrome.lineHeight;
+        double padding = (height - (endLine - startLine) * lineHeight) / 2;
+        int background = window.getRGB(width - 1, 0);
+        if (!hasPadding(window, (int) padding, background)) {
+            return null;
+        }
+
+        synchronized (paddings) {
+            paddings.putIfAbsent(optionsKey, (int) Math.round(padding));
+        }
+
+        List<TileCache.Tile> run = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            int top = (int) Math.round(padding + (boundaries[i] - startLine) * lineHeight);
+            int bottom = (int) Math.round(padding + (boundaries[i + 1] - startLine) * lineHeight);
+            bottom = Math.min(height, Math.max(top + 1, bottom));
+
+            // copy the rows, a subimage would keep the whole window alive for as long as the tile
+            int stripHeight = bottom - top;
+            BufferedImage strip = new BufferedImage(width, stripHeight,
+                    BufferedImage.TYPE_INT_ARGB);
+            strip.setRGB(0, 0, width, stripHeight,
+                    window.getRGB(0, top, width, stripHeight, null, 0, width), 0, width);
+            run.add(new TileCache.Tile(strip, background));
+        }
+
+        return run;
+    }
+
+    /**
+     * Gets whether the specified window has rows of only its background color above and below the
+     * code, as expected from the options' line height.
+     *
+     * @param window     a rendered bare window
+     * @param padding    the expected padding above and below the code, in device pixels
+     * @param background the window's background color
+     * @return whether the window has the expected padding
+     */
+    static boolean hasPadding(BufferedImage window, int padding, int background) {
+        int width = window.getWidth();
+        int height = window.getHeight();
+        if (padding < 0 || padding * 2 > height) {
+            return false;
+        }
+
+        int[] row = new int[width];
+        for (int i = 0; i < padding; i++) {
+            for (int y : new int[] {i, height - 1 - i}) {
+                window.getRGB(0, y, width, 1, row, 0, width);
+                for (int pixel : row) {
+                    if (pixel != background) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Stitches the specified tiles into a window, then draws the window controls, padding and drop
+     * shadow around it.
+     *
+     * @param rendered the rendered tiles, in order
+     * @param padding  the vertical padding above and below the code, in device pixels
+     * @param options  an {@code ImageOptions} instance
+     * @param chrome   the window chrome dimensions
+     * @return the stitched image
+     */
+    private BufferedImage stitch(TileCache.Tile[] rendered, int padding, ImageOptions options,
+            Chrome chrome) {
+        int codeWidth = 0;
+        int codeHeight = 0;
+        for (TileCache.Tile tile : rendered) {
+            codeWidth = Math.max(codeWidth, tile.getStrip().getWidth());
+            codeHeight += tile.getStrip().getHeight();
+        }
+
+        double scale = chrome.scale;
+        int controlsHeight = options.getWindowControls() ? scale(CONTROLS_HEIGHT, scale) : 0;
+        int windowWidth = codeWidth;
+        int windowHeight = controlsHeight + padding * 2 + codeHeight;
+        int windowX = chrome.paddingHorizontal;
+        int windowY = chrome.paddingVertical;
+
+        BufferedImage image = new BufferedImage(windowWidth + windowX * 2,
+                windowHeight + windowY * 2, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+
+        graphics.setColor(chrome.background);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+
+        double radius = options.getWindowTheme() == WindowTheme.SharpEdges
+                ? 0
+                : scale(CORNER_RADIUS, scale) * 2;
+        Shape window = radius == 0
+                ? new Rectangle2D.Double(windowX, windowY, windowWidth, windowHeight)
+                : new RoundRectangle2D.Double(windowX, windowY, windowWidth, windowHeight, radius,
+                        radius);
+
+        if (options.getDropShadow()) {
+            drawShadow(graphics, window, chrome);
+        }
+
+        graphics.setClip(window);
+        graphics.setColor(new Color(rendered[0].getBackground(), true));
+        graphics.fill(window);
+
+        int y = windowY + controlsHeight + padding;
+        for (TileCache.Tile tile : rendered) {
+            BufferedImage strip = tile.getStrip();
+            graphics.drawImage(strip, windowX, y, null);
+            if (strip.getWidth() < codeWidth) {
+                graphics.setColor(new Color(tile.getBackground(), true));
+                graphics.fillRect(windowX + strip.getWidth(), y, codeWidth - strip.getWidth(),
+                        strip.getHeight());
+            }
+            y += strip.getHeight();
+        }
+
+        if (options.getWindowControls()) {
+            drawControls(graphics, windowX, windowY, controlsHeight, options, scale);
+        }
+
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Draws the drop shadow of the specified window shape.
+     *
+     * @param graphics the graphics to draw with
+     * @param window   the window shape
+     * @param chrome   the window chrome dimensions
+     */
+    private void drawShadow(Graphics2D graphics, Shape window, Chrome chrome) {
+        // a css blur radius is twice the standard deviation, which three box blurs approximate
+        int blur = Math.max(1, chrome.dropShadowBlurRadius / 2);
+        Rectangle2D bounds = window.getBounds2D();
+        int margin = blur * 3;
+        int width = (int) bounds.getWidth() + margin * 2;
+        int height = (int) bounds.getHeight() + margin * 2;
+
+        BufferedImage mask = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D maskGraphics = mask.createGraphics();
+        maskGraphics.translate(margin - bounds.getX(), margin - bounds.getY());
+        maskGraphics.setColor(Color.BLACK);
+        maskGraphics.fill(window);
+        maskGraphics.dispose();
+
+        int[] alpha = mask.getRGB(0, 0, width, height, null, 0, width);
+        for (int i = 0; i < alpha.length; i++) {
+            alpha[i] >>>= 24;
+        }
+
+        int[] buffer = new int[alpha.length];
+        for (int pass = 0; pass < 3; pass++) {
+            boxBlur(alpha, buffer, width, height, blur, true);
+            boxBlur(buffer, alpha, width, height, blur, false);
+        }
+
+        for (int i = 0; i < alpha.length; i++) {
+            alpha[i] = Math.round(alpha[i] * SHADOW_OPACITY) << 24;
+        }
+        mask.setRGB(0, 0, width, height, alpha, 0, width);
+
+        graphics.drawImage(mask, (int) bounds.getX() - margin,
+                (int) bounds.getY() - margin + chrome.dropShadowOffsetY, null);
+    }
+
+    /**
+     * Blurs the specified alpha values along one axis with a box of the specified radius.
+     *
+     * @param source     the alpha values to blur
+     * @param target     the array to write the blurred values to
+     * @param width      the width of the image
+     * @param height     the height of the image
+     * @param radius     the box radius
+     * @param horizontal whether to blur rows, else columns
+     */
+    static void boxBlur(int[] source, int[] target, int width, int height, int radius,
+            boolean horizontal) {
+        int outer = horizontal ? height : width;
+        int inner = horizontal ? width : height;
+        int stride = horizontal ? 1 : width;
+        int size = radius * 2 + 1;
+
+        for (int o = 0; o < outer; o++) {
+            int base = horizontal ? o * width : o;
+            int sum = 0;
+            for (int i = -radius; i <= radius; i++) {
+                int clamped = Math.min(inner - 1, Math.max(0, i));
+                sum += source[base + clamped * stride];
+            }
+
+            for (int i = 0; i < inner; i++) {
+                target[base + i * stride] = sum / size;
+                int removed = Math.max(0, i - radius);
+                int added = Math.min(inner - 1, i + radius + 1);
+                sum += source[base + added * stride] - source[base + removed * stride];
+            }
+        }
+    }
+
+    /**
+     * Draws the window controls in the window's title bar.
+     *
+     * @param graphics       the graphics to draw with
+     * @param windowX        the x coordinate of the window
+     * @param windowY        the y coordinate of the window
+     * @param controlsHeight the height of the title bar
+     * @param options        an {@code ImageOptions} instance
+     * @param scale          the device scale factor
+     */
+    private void drawControls(Graphics2D graphics, int windowX, int windowY, int controlsHeight,
+            ImageOptions options, double scale) {
+        double diameter = CONTROLS_DIAMETER * scale;
+        double y = windowY + (controlsHeight - diameter) / 2;
+
+        for (int i = 0; i < CONTROLS_COLORS.length; i++) {
+            double x = windowX + (CONTROLS_LEFT + CONTROLS_SPACING * i) * scale;
+            Ellipse2D control = new Ellipse2D.Double(x, y, diameter, diameter);
+            graphics.setColor(CONTROLS_COLORS[i]);
+            if (options.getWindowTheme() == WindowTheme.Outlined) {
+                graphics.draw(control);
+            } else {
+                graphics.fill(control);
+            }
+        }
+    }
+
+    /**
+     * Gets the part of a tile key consisting of every option which affects how tiles are rendered.
+     *
+     * @param options  an {@code ImageOptions} instance
+     * @param language the resolved language
+     * @return the key
+     */
+    static String getOptionsKey(ImageOptions options, Language language) {
+        return String.join("\0", String.valueOf(language), options.getFontFamily(),
+                options.getFontSize(), options.getLineHeight(),
+                Integer.toString(options.getScaleFactor()), options.getTheme(),
+                Boolean.toString(options.getWidthAdjustment()));
+    }
+
+    /**
+     * Gets the cache key of the tile consisting of the specified lines, which does not depend on
+     * where in the code the tile is.
+     *
+     * @param optionsKey the key of the options
+     * @param lines      the lines of code
+     * @param start      the index of the tile's first line
+     * @param end        the index after the tile's last line
+     * @return the key
+     */
+    static String getTileKey(String optionsKey, String[] lines, int start, int end) {
+        StringBuilder key = new StringBuilder(optionsKey).append('\0');
+        for (int i = start; i < end; i++) {
+            key.append(lines[i]).append('\n');
+        }
+
+        return key.toString();
+    }
+
+    private static int scale(int value, double scale) {
+        return (int) Math.round(value * scale);
+    }
+
+    private static BufferedImage decode(byte[] image) {
+        try {
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image));
+            BufferedImage argb = new BufferedImage(decoded.getWidth(), decoded.getHeight(),
+                    BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = argb.createGraphics();
+            graphics.drawImage(decoded, 0, 0, null);
+            graphics.dispose();
+            return argb;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] encode(BufferedImage image) {
+        try {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", stream);
+            return stream.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The window chrome dimensions of some options, in device pixels.
+     */
+    static final class Chrome {
+
+        private final double scale;
+        private final double lineHeight;
+        private final int paddingHorizontal;
+        private final int paddingVertical;
+        private final int dropShadowBlurRadius;
+        private final int dropShadowOffsetY;
+        private final Color background;
+
+        private Chrome(double scale, double lineHeight, int paddingHorizontal,
+                int paddingVertical, int dropShadowBlurRadius, int dropShadowOffsetY,
+                Color background) {
+            this.scale = scale;
+            this.lineHeight = lineHeight;
+            this.paddingHorizontal = paddingHorizontal;
+            this.paddingVertical = paddingVertical;
+            this.dropShadowBlurRadius = dropShadowBlurRadius;
+            this.dropShadowOffsetY = dropShadowOffsetY;
+            this.background = background;
+        }
+
+        /**
+         * Gets the window chrome dimensions of the specified options.
+         *
+         * @param options an {@code ImageOptions} instance
+         * @return the {@code Chrome} instance if the options can be stitched, else {@code null}
+         */
+        static Chrome of(ImageOptions options) {
+            if (options.getLineNumbers() || options.getWatermark()) {
+                return null;
+            }
+
+            double scale = options.getScaleFactor();
+            double fontSize = parsePixels(options.getFontSize());
+            double lineHeight = parsePercentage(options.getLineHeight());
+            double paddingHorizontal = parsePixels(options.getPaddingHorizontal());
+            double paddingVertical = parsePixels(options.getPaddingVertical());
+            double blurRadius = parsePixels(options.getDropShadowBlurRadius());
+            double offsetY = parsePixels(options.getDropShadowOffsetY());
+            Color background = Colors.parse(options.getBackgroundColor());
+
+            if (Double.isNaN(fontSize) || Double.isNaN(lineHeight)
+                    || Double.isNaN(paddingHorizontal) || Double.isNaN(paddingVertical)
+                    || Double.isNaN(blurRadius) || Double.isNaN(offsetY) || background == null) {
+                return null;
+            }
+
+            return new Chrome(scale, fontSize * lineHeight * scale,
+                    (int) Math.round(paddingHorizontal * scale),
+                    (int) Math.round(paddingVertical * scale),
+                    (int) Math.round(blurRadius * scale),
+                    (int) Math.round(offsetY * scale),
+                    background);
+        }
+
+        /**
+         * Gets whether a line is a whole number of device pixels high, so tiles can be sliced and
+         * stitched at the same rows as a single render.
+         *
+         * @return whether the line height is whole
+         */
+        boolean hasWholeLineHeight() {
+            return Math.abs(lineHeight - Math.rint(lineHeight)) < 1e-6;
+        }
+
+        /**
+         * Parses a px value, e.g. {@code 20px}.
+         *
+         * @param value a px value
+         * @return the number of pixels if valid, else {@code NaN}
+         */
+        static double parsePixels(String value) {
+            return parseNumber(value, "px", 1);
+        }
+
+        /**
+         * Parses a percentage, e.g. {@code 133%}.
+         *
+         * @param value a percentage
+         * @return the fraction if valid, else {@code NaN}
+         */
+        static double parsePercentage(String value) {
+            return parseNumber(value, "%", 100);
+        }
+
+        private static double parseNumber(String value, String unit, double divisor) {
+            String trimmed = value.trim();
+            if (!trimmed.endsWith(unit)) {
+                return Double.NaN;
+            }
+
+            try {
+                return Double.parseDouble(
+                        trimmed.substring(0, trimmed.length() - unit.length())) / divisor;
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package sh.stein.carbon;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the threads renders run on.
+ *
+ * <p>This is the Java 21 version of this class, found in the multi-release JAR.
+ */
+final class RenderThreads {
+
+    private RenderThreads() {
+    }
+
+    /**
+     * Creates an executor which runs each render on a new virtual thread, so blocking on Playwright
+     * or waiting for a render permit does not hold a platform thread.
+     *
+     * @param maxThreads the maximum number of renders to run at once, which is left to the caller
+     *                   to enforce since waiting virtual threads are cheap
+     * @return the {@code ExecutorService} instance
+     */
+    static ExecutorService newExecutor(int maxThreads) {
+        return Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("carbon-render-", 0).factory());
+    }
+}
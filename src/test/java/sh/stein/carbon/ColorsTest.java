@@ -0,0 +1,32 @@
+package sh.stein.carbon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.awt.Color;
+import org.junit.jupiter.api.Test;
+
+class ColorsTest {
+
+    @Test
+    void parsesRgbaColors() {
+        assertEquals(new Color(171, 184, 195, 255), Colors.parse("rgba(171, 184, 195, 1)"));
+        assertEquals(new Color(0, 0, 0, 0), Colors.parse("rgba(0, 0, 0, 0)"));
+        assertEquals(new Color(1, 2, 3), Colors.parse("rgb(1, 2, 3)"));
+    }
+
+    @Test
+    void parsesHexColors() {
+        assertEquals(new Color(0xAABBCC), Colors.parse("#ABC"));
+        assertEquals(new Color(0xABB8C3), Colors.parse("#ABB8C3"));
+        assertEquals(new Color(0x11, 0x22, 0x33, 0x44), Colors.parse("#11223344"));
+    }
+
+    @Test
+    void rejectsInvalidColors() {
+        assertNull(Colors.parse("red"));
+        assertNull(Colors.parse("#12345"));
+        assertNull(Colors.parse("rgba(1, 2)"));
+        assertNull(Colors.parse("rgba(300, 0, 0, 1)"));
+    }
+}
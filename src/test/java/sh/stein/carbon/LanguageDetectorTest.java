@@ -0,0 +1,175 @@
+package sh.stein.carbon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sh.stein.carbon.ImageOptions.Language;
+
+import org.junit.jupiter.api.Test;
+
+class LanguageDetectorTest {
+
+    private static final double MIN_CONFIDENCE = 0.5;
+
+    private final LanguageDetector detector = new LanguageDetector();
+
+    @Test
+    void detectsFileExtension() {
+        LanguageDetector.Detection detection = detector.detect("src/Main.kt", "x");
+
+        assertEquals(Language.Kotlin, detection.getLanguage());
+        assertEquals(1, detection.getConfidence());
+    }
+
+    @Test
+    void detectsFileName() {
+        assertEquals(Language.Docker, detector.detect("Dockerfile", "x").getLanguage());
+        assertEquals(Language.Docker, detector.detect("Dockerfile.dev", "x").getLanguage());
+    }
+
+    @Test
+    void detectsShebang() {
+        assertEquals(Language.Python,
+                detector.detect("#!/usr/bin/env python3.9\nprint(1)").getLanguage());
+        assertEquals(Language.JavaScript,
+                detector.detect("#!/usr/bin/env -S node --harmony\nx()").getLanguage());
+        assertEquals(Language.Bash, detector.detect("#!/bin/sh\nls").getLanguage());
+    }
+
+    @Test
+    void detectsVimModeline() {
+        String code = "x = 1\n# vim: set ft=ruby:\n";
+
+        assertEquals(Language.Ruby, detector.detect(code).getLanguage());
+    }
+
+    @Test
+    void detectsEmacsModeline() {
+        String code = "# -*- mode: python -*-\nx = 1\n";
+
+        assertEquals(Language.Python, detector.detect(code).getLanguage());
+    }
+
+    @Test
+    void ignoresModelineKeysOutsideModelines() {
+        String code = "const box = {};\nbox.left=r;\nconsole.log(box);\n";
+
+        assertNotEquals(Language.R, detector.detect(code).getLanguage());
+    }
+
+    @Test
+    void ignoresModelinesOutsideComments() {
+        String code = "let vim = { vim: 1, ft=r };\n";
+
+        assertNotEquals(Language.R, detector.detect(code).getLanguage());
+    }
+
+    @Test
+    void detectsJava() {
+        String code = "public class A implements B {\n"
+                + "    @Override\n"
+                + "    public void run() throws Exception {\n"
+                + "        System.out.println(1);\n"
+                + "    }\n"
+                + "}\n";
+
+        assertConfident(Language.Java, code);
+    }
+
+    @Test
+    void detectsPython() {
+        String code = "def foo(self):\n"
+                + "    if x:\n"
+                + "        pass\n"
+                + "    elif y:\n"
+                + "        raise ValueError()\n";
+
+        assertConfident(Language.Python, code);
+    }
+
+    @Test
+    void detectsGo() {
+        assertConfident(Language.Go,
+                "package main\n\nimport \"fmt\"\n\nfunc main() {\n\tx := 1\n\tfmt.Println(x)\n}\n");
+    }
+
+    @Test
+    void detectsRust() {
+        assertConfident(Language.Rust,
+                "fn main() {\n    let mut x = Some(1).unwrap();\n    println!(\"{}\", x);\n}\n");
+    }
+
+    @Test
+    void detectsJson() {
+        assertConfident(Language.JSON, "{\"a\": 1, \"b\": [1, 2]}");
+    }
+
+    @Test
+    void detectsYaml() {
+        String code = "name: build\n"
+                + "on:\n"
+                + "  push:\n"
+                + "    branches:\n"
+                + "      - main\n"
+                + "jobs:\n"
+                + "  test:\n"
+                + "    runs-on: ubuntu-latest\n";
+
+        assertConfident(Language.YAML, code);
+    }
+
+    @Test
+    void detectsMarkdownWithStructure() {
+        String code = "# Title\n\n"
+                + "## Usage\n\n"
+                + "```java\nfoo();\n```\n\n"
+                + "See [the docs](https://a.b).\n";
+
+        assertConfident(Language.Markdown, code);
+    }
+
+    @Test
+    void doesNotDetectShellCommentsAsMarkdown() {
+        String code = "# install dependencies\n"
+                + "apt-get update\n"
+                + "# build the project\n"
+                + "make\n"
+                + "# run the tests\n"
+                + "make test\n"
+                + "# package the release\n"
+                + "tar czf out.tgz build\n"
+                + "# done\n";
+
+        assertNotEquals(Language.Markdown, detector.detect(code).getLanguage());
+    }
+
+    @Test
+    void doesNotDetectBlockKeywordsAsYaml() {
+        String code = "try:\n"
+                + "    run()\n"
+                + "except:\n"
+                + "    pass\n"
+                + "else:\n"
+                + "    done()\n"
+                + "finally:\n"
+                + "    close()\n";
+
+        assertNotEquals(Language.YAML, detector.detect(code).getLanguage());
+    }
+
+    @Test
+    void detectsNothingInPlainText() {
+        LanguageDetector.Detection detection = detector.detect("hello");
+
+        assertEquals(Language.Auto, detection.getLanguage());
+        assertEquals(0, detection.getConfidence());
+    }
+
+    private void assertConfident(Language expected, String code) {
+        LanguageDetector.Detection detection = detector.detect(code);
+
+        assertEquals(expected, detection.getLanguage());
+        assertTrue(detection.getConfidence() >= MIN_CONFIDENCE,
+                "confidence " + detection.getConfidence() + " is below " + MIN_CONFIDENCE);
+    }
+}
@@ -0,0 +1,69 @@
+package sh.stein.carbon;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static sh.stein.carbon.ImageOptions.Language;
+import static sh.stein.carbon.PlaywrightCarbonService.LaunchProfile;
+
+import com.microsoft.playwright.BrowserType;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class PlaywrightCarbonServiceTest {
+
+    @Test
+    void keepsWholeDevicePixelClips() {
+        assertArrayEquals(new double[]{10, 20, 300, 400},
+                PlaywrightCarbonService.getDeviceClip(10, 20, 300, 400, 2));
+    }
+
+    @Test
+    void expandsFractionalClipsToWholeDevicePixels() {
+        assertArrayEquals(new double[]{10, 20.5, 300.5, 400.5},
+                PlaywrightCarbonService.getDeviceClip(10.3, 20.7, 300.1, 400.2, 2));
+    }
+
+    @Test
+    void resolvesOnlyAutoLanguages() {
+        PlaywrightCarbonService service = new PlaywrightCarbonService();
+
+        assertEquals(Language.Go, service.resolveLanguage(null, "print(1)", Language.Go));
+        assertEquals(Language.Kotlin, service.resolveLanguage("Main.kt", "x", Language.Auto));
+        assertEquals(Language.Auto, service.resolveLanguage(null, "hello", Language.Auto));
+    }
+
+    @Test
+    void launchesDefaultProfileWithPlaywrightDefaults() {
+        BrowserType.LaunchOptions launchOptions = LaunchProfile.Default.getLaunchOptions();
+
+        assertNull(launchOptions.args);
+        assertNull(launchOptions.ignoreDefaultArgs);
+    }
+
+    @Test
+    void mergesDisabledFeaturesWithPlaywrights() {
+        String playwrightFlag = "--disable-features="
+                + LaunchProfile.PLAYWRIGHT_DISABLED_FEATURES;
+        BrowserType.LaunchOptions launchOptions = LaunchProfile.LowMemory.getLaunchOptions();
+        List<String> featureFlags = launchOptions.args.stream()
+                .filter(arg -> arg.startsWith("--disable-features="))
+                .collect(Collectors.toList());
+
+        assertEquals(Collections.singletonList(playwrightFlag), launchOptions.ignoreDefaultArgs);
+        assertEquals(Collections.singletonList(
+                playwrightFlag + ",site-per-process,IsolateOrigins"), featureFlags);
+    }
+
+    @Test
+    void keepsPlaywrightsFeaturesWhenNoneAreDisabled() {
+        BrowserType.LaunchOptions launchOptions = LaunchProfile.Container.getLaunchOptions();
+
+        assertNull(launchOptions.ignoreDefaultArgs);
+        assertFalse(launchOptions.args.stream()
+                .anyMatch(arg -> arg.startsWith("--disable-features=")));
+    }
+}
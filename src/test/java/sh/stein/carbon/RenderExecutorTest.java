@@ -0,0 +1,79 @@
+package sh.stein.carbon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class RenderExecutorTest {
+
+    @Test
+    void runsAtMostTheMaximumNumberOfRendersAtOnce() throws Exception {
+        RenderExecutor executor = new RenderExecutor(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return new byte[0];
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    void completesExceptionallyWithTheRendersException() {
+        RenderExecutor executor = new RenderExecutor(1);
+
+        CompletableFuture<byte[]> future = executor.execute(() -> {
+            throw new IOException("unreadable");
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertTrue(e.getCause() instanceof IOException);
+    }
+
+    @Test
+    void releasesPermitsAfterFailedRenders() throws Exception {
+        RenderExecutor executor = new RenderExecutor(1);
+        executor.execute(() -> {
+            throw new IOException("unreadable");
+        });
+
+        assertEquals(1, executor.execute(() -> new byte[1]).get().length);
+    }
+
+    @Test
+    void rejectsNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new RenderExecutor(0));
+    }
+
+    @Test
+    void readsTheLimitFromItsSystemProperty() {
+        String property = RenderExecutor.MAX_CONCURRENT_RENDERS_PROPERTY;
+        int processors = Runtime.getRuntime().availableProcessors();
+        try {
+            System.setProperty(property, "3");
+            assertEquals(3, RenderExecutor.getMaxConcurrentRenders());
+
+            System.setProperty(property, "0");
+            assertEquals(processors, RenderExecutor.getMaxConcurrentRenders());
+        } finally {
+            System.clearProperty(property);
+        }
+        assertEquals(processors, RenderExecutor.getMaxConcurrentRenders());
+    }
+}
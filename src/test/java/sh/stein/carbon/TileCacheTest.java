@@ -0,0 +1,62 @@
+package sh.stein.carbon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+class TileCacheTest {
+
+    /**
+     * The size of a 10 by 10 tile, in bytes.
+     */
+    private static final long TILE_BYTES = 400;
+
+    @Test
+    void evictsLeastRecentlyUsedTilesBeyondItsBound() {
+        TileCache cache = new TileCache(TILE_BYTES * 2);
+        TileCache.Tile a = getTile();
+        TileCache.Tile b = getTile();
+        cache.put("a", a);
+        cache.put("b", b);
+        cache.get("a");
+
+        cache.put("c", getTile());
+
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(2, cache.size());
+        assertEquals(TILE_BYTES * 2, cache.getBytes());
+    }
+
+    @Test
+    void replacingATileUpdatesItsSize() {
+        TileCache cache = new TileCache(TILE_BYTES * 2);
+        cache.put("a", getTile());
+        cache.put("a", getTile());
+
+        assertEquals(1, cache.size());
+        assertEquals(TILE_BYTES, cache.getBytes());
+    }
+
+    @Test
+    void doesNotCacheTilesLargerThanItsBound() {
+        TileCache cache = new TileCache(TILE_BYTES - 1);
+        cache.put("a", getTile());
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    void rejectsNonPositiveBound() {
+        assertThrows(IllegalArgumentException.class, () -> new TileCache(0));
+    }
+
+    private static TileCache.Tile getTile() {
+        return new TileCache.Tile(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB), 0);
+    }
+}
@@ -0,0 +1,437 @@
+package sh.stein.carbon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sh.stein.carbon.ImageOptions.Language;
+import static sh.stein.carbon.ImageOptions.WindowTheme;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+class TiledCarbonServiceTest {
+
+    private static final int LINES_PER_TILE = 10;
+    private static final long MAX_CACHED_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Options without any chrome, so a stitched image must equal a single bare render, with a line
+     * height of a whole 42 device pixels.
+     */
+    private static final ImageOptions BARE_OPTIONS = new ImageOptions.ImageOptionsBuilder()
+            .backgroundColor("rgba(0, 0, 0, 0)")
+            .dropShadow(false)
+            .fontSize("15px")
+            .language(Language.Java)
+            .lineHeight("140%")
+            .paddingHorizontal("0px")
+            .paddingVertical("0px")
+            .windowControls(false)
+            .windowTheme(WindowTheme.SharpEdges)
+            .build();
+
+    private final FakeCarbonService fake = new FakeCarbonService(20, 20);
+    private final TiledCarbonService service =
+            new TiledCarbonService(fake, LINES_PER_TILE, MAX_CACHED_BYTES);
+
+    @Test
+    void stitchedImageMatchesSingleRender() {
+        String[] lines = getLines(300);
+        service.getImage(String.join("\n", lines), BARE_OPTIONS);
+
+        lines[150] = "int edited = 150;";
+        String code = String.join("\n", lines);
+        BufferedImage stitched = decode(service.getImage(code, BARE_OPTIONS));
+        BufferedImage single = decode(fake.render(code));
+
+        assertImagesEqual(single, stitched);
+    }
+
+    @Test
+    void rendersOnlyTheEditedRun() {
+        String[] lines = getLines(300);
+        service.getImage(String.join("\n", lines), BARE_OPTIONS);
+        fake.renderedLines.clear();
+
+        lines[150] = "int edited = 150;";
+        service.getImage(String.join("\n", lines), BARE_OPTIONS);
+
+        assertEquals(1, fake.renderedLines.size());
+        assertTrue(fake.renderedLines.get(0) <= LINES_PER_TILE * 2);
+    }
+
+    @Test
+    void rendersDistantEditsInOneLaunch() {
+        String[] lines = getLines(300);
+        service.getImage(String.join("\n", lines), BARE_OPTIONS);
+        fake.renderedLines.clear();
+        fake.launches = 0;
+
+        lines[1] = "int first = 1;";
+        lines[298] = "int last = 298;";
+        String code = String.join("\n", lines);
+        BufferedImage stitched = decode(service.getImage(code, BARE_OPTIONS));
+
+        assertEquals(1, fake.launches);
+        assertEquals(2, fake.renderedLines.size());
+        assertTrue(getSum(fake.renderedLines) <= LINES_PER_TILE * 4);
+        assertImagesEqual(decode(fake.render(code)), stitched);
+    }
+
+    @Test
+    void stitchedImageMatchesSingleRenderWithDefaultLineHeight() {
+        ImageOptions defaults = ImageOptions.getDefault();
+        ImageOptions options = new ImageOptions.ImageOptionsBuilder(BARE_OPTIONS)
+                .fontSize(defaults.getFontSize())
+                .lineHeight(defaults.getLineHeight())
+                .scaleFactor(defaults.getScaleFactor())
+                .build();
+        String[] lines = getLines(300);
+        service.getImage(String.join("\n", lines), options);
+
+        lines[150] = "int edited = 150;";
+        String code = String.join("\n", lines);
+        BufferedImage stitched = decode(service.getImage(code, options));
+
+        assertImagesEqual(decode(fake.render(code, options)), stitched);
+    }
+
+    @Test
+    void fallsBackWhenLanguageIsNotDetected() {
+        ImageOptions options = new ImageOptions.ImageOptionsBuilder(BARE_OPTIONS)
+                .language(Language.Auto)
+                .build();
+        String[] lines = new String[100];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "note " + i;
+        }
+
+        service.getImage(String.join("\n", lines), options);
+
+        assertEquals(Arrays.asList(Language.Auto), fake.languages);
+        assertEquals(Arrays.asList(100), fake.renderedLines);
+    }
+
+    @Test
+    void insertingALineDoesNotRenderLaterTiles() {
+        List<String> lines = new ArrayList<>(Arrays.asList(getLines(300)));
+        service.getImage(String.join("\n", lines), BARE_OPTIONS);
+        fake.renderedLines.clear();
+
+        lines.add(10, "int inserted = 10;");
+        String code = String.join("\n", lines);
+        BufferedImage stitched = decode(service.getImage(code, BARE_OPTIONS));
+
+        assertTrue(getSum(fake.renderedLines) <= LINES_PER_TILE * 4,
+                "rendered " + fake.renderedLines);
+        assertImagesEqual(decode(fake.render(code)), stitched);
+    }
+
+    @Test
+    void fallsBackWhenPaddingIsNotAsExpected() {
+        FakeCarbonService asymmetric = new FakeCarbonService(10, 30);
+        TiledCarbonService tiled =
+                new TiledCarbonService(asymmetric, LINES_PER_TILE, MAX_CACHED_BYTES);
+
+        String code = String.join("\n", getLines(100));
+        BufferedImage image = decode(tiled.getImage(code, BARE_OPTIONS));
+
+        assertEquals(2, asymmetric.renderedLines.size());
+        assertEquals(100, (int) asymmetric.renderedLines.get(1));
+        assertImagesEqual(decode(asymmetric.render(code)), image);
+    }
+
+    @Test
+    void rendersTilesWithTheResolvedLanguage() {
+        service.getImage(String.join("\n", getLines(100)), BARE_OPTIONS);
+
+        assertEquals(Arrays.asList(Language.Java), fake.languages);
+    }
+
+    @Test
+    void fallsBackWithLineNumbers() {
+        ImageOptions options = new ImageOptions.ImageOptionsBuilder(BARE_OPTIONS)
+                .lineNumbers(true)
+                .build();
+
+        service.getImage(String.join("\n", getLines(100)), options);
+
+        assertEquals(Arrays.asList(100), fake.renderedLines);
+    }
+
+    @Test
+    void drawsChromeAroundStitchedTiles() {
+        ImageOptions options = new ImageOptions.ImageOptionsBuilder(BARE_OPTIONS)
+                .backgroundColor("#ABB8C3")
+                .paddingHorizontal("10px")
+                .paddingVertical("20px")
+                .windowControls(true)
+                .windowTheme(WindowTheme.RoundedEdges)
+                .build();
+
+        String code = String.join("\n", getLines(100));
+        BufferedImage image = decode(service.getImage(code, options));
+        BufferedImage single = decode(fake.render(code));
+
+        assertEquals(single.getWidth() + 40, image.getWidth());
+        assertEquals(single.getHeight() + 80 + 72, image.getHeight());
+        assertEquals(0xFFABB8C3, image.getRGB(0, 0));
+    }
+
+    @Test
+    void drawsDropShadowBelowWindow() {
+        ImageOptions options = new ImageOptions.ImageOptionsBuilder(BARE_OPTIONS)
+                .backgroundColor("#FFFFFF")
+                .dropShadow(true)
+                .paddingHorizontal("20px")
+                .paddingVertical("20px")
+                .build();
+
+        BufferedImage image = decode(service.getImage(String.join("\n", getLines(100)), options));
+        int below = image.getRGB(image.getWidth() / 2, image.getHeight() - 20);
+
+        assertEquals(0xFFFFFFFF, image.getRGB(0, 0) | 0x00FFFFFF);
+        assertTrue((below & 0xFF) < 0xFF, "no shadow below the window");
+    }
+
+    @Test
+    void tileBoundariesSurviveInsertedLines() {
+        String[] lines = getLines(300);
+        List<String> inserted = new ArrayList<>(Arrays.asList(lines));
+        inserted.add(5, "int inserted = 5;");
+
+        List<String> before = getTiles(lines, service.getTileBoundaries(lines));
+        String[] after = inserted.toArray(new String[0]);
+        List<String> afterTiles = getTiles(after, service.getTileBoundaries(after));
+
+        int changed = 0;
+        for (String tile : afterTiles) {
+            if (!before.contains(tile)) {
+                changed++;
+            }
+        }
+        assertTrue(changed <= 2, changed + " tiles changed");
+    }
+
+    @Test
+    void tileBoundariesCoverEveryLine() {
+        String[] lines = getLines(95);
+        int[] boundaries = service.getTileBoundaries(lines);
+
+        assertEquals(0, boundaries[0]);
+        assertEquals(95, boundaries[boundaries.length - 1]);
+        for (int i = 1; i < boundaries.length; i++) {
+            int length = boundaries[i] - boundaries[i - 1];
+            assertTrue(length >= 1 && length <= LINES_PER_TILE * 2, "tile of " + length);
+        }
+    }
+
+    @Test
+    void tileKeyDependsOnContentsAndOptionsOnly() {
+        String[] lines = {"a", "b", "a", "b"};
+        String optionsKey = TiledCarbonService.getOptionsKey(BARE_OPTIONS, Language.Java);
+        String otherOptionsKey = TiledCarbonService.getOptionsKey(
+                new ImageOptions.ImageOptionsBuilder(BARE_OPTIONS).theme("dracula").build(),
+                Language.Java);
+
+        assertEquals(TiledCarbonService.getTileKey(optionsKey, lines, 0, 2),
+                TiledCarbonService.getTileKey(optionsKey, lines, 2, 4));
+        assertNotEquals(TiledCarbonService.getTileKey(optionsKey, lines, 0, 2),
+                TiledCarbonService.getTileKey(optionsKey, lines, 1, 3));
+        assertNotEquals(TiledCarbonService.getTileKey(optionsKey, lines, 0, 2),
+                TiledCarbonService.getTileKey(otherOptionsKey, lines, 0, 2));
+        assertNotEquals(optionsKey,
+                TiledCarbonService.getOptionsKey(BARE_OPTIONS, Language.Kotlin));
+    }
+
+    @Test
+    void parsesNumbers() {
+        assertEquals(56, TiledCarbonService.Chrome.parsePixels("56px"));
+        assertEquals(1.5, TiledCarbonService.Chrome.parsePixels(" 1.5px "));
+        assertEquals(1.33, TiledCarbonService.Chrome.parsePercentage("133%"), 1e-9);
+        assertTrue(Double.isNaN(TiledCarbonService.Chrome.parsePixels("1em")));
+        assertTrue(Double.isNaN(TiledCarbonService.Chrome.parsePercentage("1.5")));
+        assertTrue(Double.isNaN(TiledCarbonService.Chrome.parsePixels("apx")));
+    }
+
+    @Test
+    void boxBlurKeepsUniformValues() {
+        int[] source = new int[5 * 4];
+        Arrays.fill(source, 200);
+        int[] target = new int[source.length];
+
+        TiledCarbonService.boxBlur(source, target, 5, 4, 2, true);
+
+        for (int value : target) {
+            assertEquals(200, value);
+        }
+    }
+
+    @Test
+    void boxBlurSpreadsAlongOneAxis() {
+        int[] source = new int[5 * 3];
+        source[5 + 2] = 250;
+        int[] target = new int[source.length];
+
+        TiledCarbonService.boxBlur(source, target, 5, 3, 1, true);
+
+        assertEquals(Arrays.toString(new int[] {0, 0, 0, 0, 0, 0, 83, 83, 83, 0, 0, 0, 0, 0, 0}),
+                Arrays.toString(target));
+
+        TiledCarbonService.boxBlur(source, target, 5, 3, 1, false);
+
+        assertEquals(Arrays.toString(new int[] {0, 0, 83, 0, 0, 0, 0, 83, 0, 0, 0, 0, 83, 0, 0}),
+                Arrays.toString(target));
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TiledCarbonService(fake, 0, MAX_CACHED_BYTES));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TiledCarbonService(fake, LINES_PER_TILE, 0));
+    }
+
+    @Test
+    void checksPadding() {
+        BufferedImage window = decode(fake.render("abc\nde"));
+        int background = window.getRGB(window.getWidth() - 1, 0);
+
+        assertTrue(TiledCarbonService.hasPadding(window, 20, background));
+        assertFalse(TiledCarbonService.hasPadding(window, 25, background));
+        assertFalse(TiledCarbonService.hasPadding(window, window.getHeight(), background));
+    }
+
+    private static String[] getLines(int count) {
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = i % 7 == 3 ? "" : "int value" + i + " = " + (i * 31 % 97) + ";";
+        }
+
+        return lines;
+    }
+
+    private static List<String> getTiles(String[] lines, int[] boundaries) {
+        List<String> tiles = new ArrayList<>();
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+            tiles.add(String.join("\n",
+                    Arrays.copyOfRange(lines, boundaries[i], boundaries[i + 1])));
+        }
+
+        return tiles;
+    }
+
+    private static int getSum(List<Integer> values) {
+        int sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+
+        return sum;
+    }
+
+    private static void assertImagesEqual(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth(), "width");
+        assertEquals(expected.getHeight(), actual.getHeight(), "height");
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    throw new AssertionError("pixels differ at " + x + ", " + y);
+                }
+            }
+        }
+    }
+
+    private static BufferedImage decode(byte[] image) {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(image));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Renders a bare window the way Carbon lays it out, with padding above and below the code and
+     * a band whose color and width depend on each line's contents, starting at the device pixel
+     * its line's position rounds to.
+     */
+    private static class FakeCarbonService extends PlaywrightCarbonService {
+
+        private static final int CHARACTER_WIDTH = 6;
+        private static final int BACKGROUND = 0xFF1E1E1E;
+
+        private final int paddingTop;
+        private final int paddingBottom;
+        private final List<Integer> renderedLines = new ArrayList<>();
+        private final List<Language> languages = new ArrayList<>();
+        private int launches;
+
+        FakeCarbonService(int paddingTop, int paddingBottom) {
+            this.paddingTop = paddingTop;
+            this.paddingBottom = paddingBottom;
+        }
+
+        @Override
+        List<byte[]> getImages(List<String> codes, ImageOptions options, Language language) {
+            launches++;
+            List<byte[]> images = new ArrayList<>();
+            for (String code : codes) {
+                renderedLines.add(code.split("\n", -1).length);
+                languages.add(language);
+                images.add(render(code, options));
+            }
+
+            return images;
+        }
+
+        byte[] render(String code) {
+            return render(code, BARE_OPTIONS);
+        }
+
+        byte[] render(String code, ImageOptions options) {
+            double lineHeight = TiledCarbonService.Chrome.parsePixels(options.getFontSize())
+                    * TiledCarbonService.Chrome.parsePercentage(options.getLineHeight())
+                    * options.getScaleFactor();
+            String[] lines = code.split("\n", -1);
+            int longest = 0;
+            for (String line : lines) {
+                longest = Math.max(longest, line.length());
+            }
+
+            int width = 40 + longest * CHARACTER_WIDTH;
+            int height = paddingTop + (int) Math.round(lines.length * lineHeight) + paddingBottom;
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setColor(new Color(BACKGROUND, true));
+            graphics.fillRect(0, 0, width, height);
+            for (int i = 0; i < lines.length; i++) {
+                int top = paddingTop + (int) Math.round(i * lineHeight);
+                int bottom = paddingTop + (int) Math.round((i + 1) * lineHeight);
+                graphics.setColor(new Color(lines[i].hashCode() | 0xFF000000, true));
+                graphics.fillRect(20, top + 4, lines[i].length() * CHARACTER_WIDTH,
+                        bottom - top - 8);
+            }
+            graphics.dispose();
+
+            try {
+                ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                ImageIO.write(image, "png", stream);
+                return stream.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}